@@ -0,0 +1,56 @@
+package Bench;
+
+import Model.Account;
+import Service.AccountService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AccountService registration and login against a seeded H2 database. Account count is set with -p accounts=N.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDatabase.DB_URL_ARG)
+public class AccountServiceBenchmark {
+
+    @Param({"10000"})
+    public int accounts;
+
+    private AccountService accountService;
+    private final AtomicLong nextUsername = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.seed(accounts, 0);
+        accountService = new AccountService();
+    }
+
+    @Benchmark
+    public Account addAccount() {
+        return accountService.addAccount(new Account("newuser" + nextUsername.incrementAndGet(), "password"));
+    }
+
+    @Benchmark
+    public Account validLogin() {
+        int user = 1 + ThreadLocalRandom.current().nextInt(accounts);
+        return accountService.validLogin(new Account("benchuser" + user, "password"));
+    }
+}
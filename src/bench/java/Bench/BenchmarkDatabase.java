@@ -0,0 +1,88 @@
+package Bench;
+
+import Util.ConnectionUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Seeds the benchmark database. Benchmarks fork with -Ddb.url pointing at target/bench, so the development database
+ * in ./h2 is never touched.
+ */
+public class BenchmarkDatabase {
+
+    /**
+     * JDBC URL of the benchmark database.
+     */
+    public static final String DB_URL = "jdbc:h2:./target/bench/db;";
+    /**
+     * JVM argument every benchmark fork runs with.
+     */
+    public static final String DB_URL_ARG = "-Ddb.url=" + DB_URL;
+
+    /**
+     * Rows inserted per transaction while seeding.
+     */
+    private static final int SEED_BATCH_SIZE = 5000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Recreate the schema and fill it with accounts named benchuser1..benchuserN (password "password") and messages
+     * spread round-robin across them. Message IDs run from 1 to messages.
+     *
+     * @param accounts the number of accounts to create.
+     * @param messages the number of messages to create.
+     */
+    public static void seed(int accounts, int messages) {
+        ConnectionUtil.resetTestDatabase();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM message")) {
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM account")) {
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "ALTER TABLE account ALTER COLUMN account_id RESTART WITH 1")) {
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "ALTER TABLE message ALTER COLUMN message_id RESTART WITH 1")) {
+                ps.executeUpdate();
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO account (username, password) VALUES (?, ?)")) {
+                for (int i = 1; i <= accounts; i++) {
+                    ps.setString(1, "benchuser" + i);
+                    ps.setString(2, "password");
+                    ps.addBatch();
+                    if (i % SEED_BATCH_SIZE == 0) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)")) {
+                for (int i = 1; i <= messages; i++) {
+                    ps.setInt(1, 1 + (i % accounts));
+                    ps.setString(2, "benchmark message number " + i);
+                    ps.setLong(3, 1669947792L + i);
+                    ps.addBatch();
+                    if (i % SEED_BATCH_SIZE == 0) {
+                        ps.executeBatch();
+                        connection.commit();
+                    }
+                }
+                ps.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not seed the benchmark database", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package Bench;
+
+import DAO.GroupCommitMessageWriter;
+import DAO.MessageDAO;
+import Model.Message;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-message inserts from many concurrent callers, each on its own auto-commit transaction versus through the
+ * group-commit writer. Sample time mode reports the latency percentiles, including p99, alongside the mean; the
+ * number of callers is set with -t N.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(32)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkDatabase.DB_URL_ARG, "-Dpool.maxSize=10"})
+public class GroupCommitBenchmark {
+
+    @Param({"100"})
+    public int accounts;
+
+    @Param({"64"})
+    public int maxBatchSize;
+
+    @Param({"1000"})
+    public long maxLingerMicros;
+
+    private MessageDAO messageDAO;
+    private GroupCommitMessageWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.seed(accounts, 0);
+        messageDAO = new MessageDAO();
+        writer = new GroupCommitMessageWriter(messageDAO, maxBatchSize, maxLingerMicros, 4096);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        writer.shutdown();
+    }
+
+    private Message newMessage() {
+        int postedBy = 1 + ThreadLocalRandom.current().nextInt(accounts);
+        return new Message(postedBy, "benchmark insert", 1669947792L);
+    }
+
+    @Benchmark
+    public Message directInsert() {
+        return messageDAO.insertMessage(newMessage());
+    }
+
+    @Benchmark
+    public Message groupCommitInsert() {
+        return writer.submit(newMessage()).join();
+    }
+}
@@ -0,0 +1,349 @@
+package Bench;
+
+import Model.Account;
+import Model.Message;
+import Util.JsonUtil;
+import Util.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import io.javalin.Javalin;
+
+/**
+ * HTTP load generator. Starts the app through LoadServer against a freshly seeded benchmark database and, by default,
+ * fires a weighted mix of requests at a fixed rate, whether or not earlier requests have answered. Each request's
+ * latency is measured from the time it was scheduled to be sent, not the time it actually went out, so a stalled
+ * server shows up in the percentiles instead of silently lowering the request rate (coordinated omission).
+ *
+ * With load.clients set it runs closed-loop instead: that many clients, each on its own virtual thread, send a request,
+ * wait for the answer and send the next. This holds a fixed number of connections open and busy, which is the way to
+ * compare server modes at a given concurrency, e.g. 10k clients against platform and virtual request threads. Latency
+ * is then measured from the actual send, and a slow server lowers the request rate rather than the percentiles, so
+ * read the req/s column alongside them. Clients start spread evenly over the warmup, so the server's accept queue
+ * is not hit by all of them at once.
+ *
+ * Every connection costs a socket on each end, so at high client counts the app is better run in its own JVM with
+ * LoadServer and targeted with load.target; that halves the file descriptors each process needs.
+ *
+ * Configured with system properties:
+ * <ul>
+ *     <li>load.rate - requests per second (default 500).</li>
+ *     <li>load.durationSeconds - length of the measured run (default 30).</li>
+ *     <li>load.warmupSeconds - run time before measurement starts (default 5).</li>
+ *     <li>load.accounts, load.messages - seed size (defaults 100 and 10000).</li>
+ *     <li>load.mix - route weights (default register=2,login=10,post=20,read=50,list=10,patch=5,delete=3).</li>
+ *     <li>load.maxOutstanding - requests allowed in flight before new ones are dropped (default 10000).</li>
+ *     <li>load.clients - closed-loop client count; 0 runs open-loop at load.rate (default 0).</li>
+ *     <li>load.target - base URL of an already running app, e.g. one started by LoadServer; when set the app is
+ *     neither seeded nor started here (default unset).</li>
+ *     <li>load.port - port the app listens on (default 8080).</li>
+ * </ul>
+ * Server modes are chosen as usual, e.g. -Dserver.virtualThreads=true or -Dserver.asyncHandlers=true.
+ *
+ * Run with: mvn -Pbench package exec:exec@load -Dload.jvmArgs="-Dload.rate=2000 -Dserver.virtualThreads=true"
+ *
+ * Or, with the app in a separate JVM:
+ * mvn -Pbench package exec:exec@load-server -Dload.jvmArgs="-Dserver.virtualThreads=true"
+ * mvn -Pbench exec:exec@load -Dload.jvmArgs="-Dload.clients=10000 -Dload.target=http://localhost:8080"
+ */
+public class LoadGenerator {
+
+    private static final int RATE = Integer.getInteger("load.rate", 500);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.durationSeconds", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 5);
+    private static final int ACCOUNTS = Integer.getInteger("load.accounts", 100);
+    private static final int MESSAGES = Integer.getInteger("load.messages", 10000);
+    private static final String MIX = System.getProperty("load.mix",
+            "register=2,login=10,post=20,read=50,list=10,patch=5,delete=3");
+    private static final int MAX_OUTSTANDING = Integer.getInteger("load.maxOutstanding", 10000);
+    private static final int PORT = Integer.getInteger("load.port", 8080);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 0);
+    private static final String TARGET = System.getProperty("load.target");
+
+    private final String baseUrl = TARGET != null ? TARGET : "http://localhost:" + PORT;
+    private final ExecutorService clientExecutor = Executors.newFixedThreadPool(
+            Math.max(4, Runtime.getRuntime().availableProcessors()));
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(clientExecutor)
+            .build();
+
+    private final List<Route> routes = new ArrayList<>();
+    private int totalWeight;
+
+    /**
+     * Messages posted during this run, so deletes remove the run's own messages and leave the seed for reads.
+     */
+    private final ConcurrentLinkedQueue<Integer> postedMessageIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger registrations = new AtomicInteger();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Map<String, LongAdder> errorTypes = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong maxSchedulerLagNanos = new AtomicLong();
+
+    public static void main(String[] args) throws InterruptedException {
+        Javalin app = TARGET == null ? LoadServer.start() : null;
+        LoadGenerator generator = new LoadGenerator();
+        try {
+            if (CLIENTS > 0) {
+                generator.runClients();
+            } else {
+                generator.run();
+            }
+        } finally {
+            if (app != null) app.stop();
+            generator.clientExecutor.shutdownNow();
+        }
+        System.exit(0);
+    }
+
+    LoadGenerator() {
+        for (String entry : MIX.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                routes.add(new Route(parts[0].trim(), weight));
+                totalWeight += weight;
+            }
+        }
+        if (routes.isEmpty()) throw new IllegalArgumentException("load.mix has no routes with a positive weight");
+    }
+
+    /**
+     * Send requests at the configured rate for the warmup and measured periods, wait for stragglers, then print the
+     * report.
+     */
+    void run() throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, RATE);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        System.out.printf("Load: %d req/s, %ds warmup, %ds measured, mix %s%n", RATE, WARMUP_SECONDS, DURATION_SECONDS, MIX);
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) break;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                maxSchedulerLagNanos.accumulateAndGet(-wait, Math::max);
+            }
+            Route route = pickRoute();
+            boolean measured = intended >= measureFrom;
+            if (outstanding.get() >= MAX_OUTSTANDING) {
+                if (measured) dropped.increment();
+                continue;
+            }
+            send(route, intended, measured);
+        }
+
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        report(TimeUnit.NANOSECONDS.toSeconds(end - measureFrom));
+    }
+
+    /**
+     * Run load.clients closed-loop clients for the warmup and measured periods, wait for them to finish their last
+     * request, then print the report.
+     */
+    void runClients() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        long rampNanos = TimeUnit.SECONDS.toNanos(WARMUP_SECONDS) / CLIENTS;
+        System.out.printf("Load: %d clients, %ds warmup, %ds measured, mix %s%n",
+                CLIENTS, WARMUP_SECONDS, DURATION_SECONDS, MIX);
+
+        List<Thread> clients = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            long startAt = start + i * rampNanos;
+            clients.add(Thread.ofVirtual().start(() -> {
+                LockSupport.parkNanos(startAt - System.nanoTime());
+                for (long sent = System.nanoTime(); sent < end; sent = System.nanoTime()) {
+                    Route route = pickRoute();
+                    outstanding.incrementAndGet();
+                    try {
+                        record(route, client.send(buildRequest(route.name), HttpResponse.BodyHandlers.ofByteArray()),
+                                null, sent, sent >= measureFrom);
+                    } catch (IOException e) {
+                        record(route, null, e, sent, sent >= measureFrom);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }));
+        }
+        for (Thread clientThread : clients) {
+            clientThread.join();
+        }
+        report(TimeUnit.NANOSECONDS.toSeconds(end - measureFrom));
+    }
+
+    private Route pickRoute() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Route route : routes) {
+            pick -= route.weight;
+            if (pick < 0) return route;
+        }
+        return routes.get(routes.size() - 1);
+    }
+
+    private void send(Route route, long intended, boolean measured) {
+        HttpRequest request = buildRequest(route.name);
+        outstanding.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> record(route, response, error, intended, measured));
+    }
+
+    /**
+     * Record one answered (or failed) request, whose latency runs from sentAt until now.
+     */
+    private void record(Route route, HttpResponse<byte[]> response, Throwable error, long sentAt, boolean measured) {
+        long latency = System.nanoTime() - sentAt;
+        outstanding.decrementAndGet();
+        if (response != null && route.name.equals("post") && response.statusCode() == 200) {
+            rememberPostedMessage(response.body());
+        }
+        if (!measured) return;
+        route.latency.record(latency);
+        if (error != null) {
+            route.errors.increment();
+            errorTypes.computeIfAbsent(rootCause(error).getClass().getSimpleName(), k -> new LongAdder()).increment();
+        } else if (response.statusCode() >= 500) route.serverErrors.increment();
+        else if (response.statusCode() >= 400) route.clientErrors.increment();
+    }
+
+    private HttpRequest buildRequest(String route) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int accountId = 1 + random.nextInt(ACCOUNTS);
+        int messageId = 1 + random.nextInt(Math.max(1, MESSAGES));
+        switch (route) {
+            case "register":
+                return post("/register", json(new Account(
+                        "load" + runId + "_" + registrations.incrementAndGet(), "password")));
+            case "login":
+                return post("/login", json(new Account("benchuser" + accountId, "password")));
+            case "post":
+                return post("/messages", json(new Message(
+                        accountId, "load test message " + random.nextInt(), System.currentTimeMillis() / 1000)));
+            case "read":
+                return get("/messages/" + messageId);
+            case "list":
+                return get("/accounts/" + accountId + "/messages");
+            case "patch":
+                return request("/messages/" + messageId)
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                                "{\"message_text\":\"patched by load test " + random.nextInt() + "\"}"))
+                        .build();
+            case "delete":
+                Integer posted = postedMessageIds.poll();
+                // Until this run has posted something, delete an ID past the seed, which is a no-op.
+                return request("/messages/" + (posted != null ? posted : MESSAGES + 1_000_000 + messageId))
+                        .DELETE()
+                        .build();
+            default:
+                throw new IllegalArgumentException("Unknown route in load.mix: " + route);
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest post(String path, byte[] body) {
+        return request(path).POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+    }
+
+    private static byte[] json(Object value) {
+        try {
+            return JsonUtil.MAPPER.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void rememberPostedMessage(byte[] body) {
+        try {
+            Message message = JsonUtil.MESSAGE_READER.readValue(body);
+            postedMessageIds.add(message.getMessage_id());
+        } catch (IOException e) {
+            // Not worth failing the run over; this message just won't be deleted.
+        }
+    }
+
+    private void report(long measuredSeconds) {
+        double seconds = Math.max(1, measuredSeconds);
+        System.out.println();
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %8s %8s %8s%n",
+                "route", "count", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "4xx", "5xx", "errors");
+        long total = 0;
+        for (Route route : routes) {
+            LatencyHistogram h = route.latency;
+            total += h.getCount();
+            System.out.printf("%-10s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d %8d %8d%n",
+                    route.name, h.getCount(), h.getCount() / seconds,
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(99)),
+                    millis(h.getValueAtPercentile(99.9)), millis(h.getMax()),
+                    route.clientErrors.sum(), route.serverErrors.sum(), route.errors.sum());
+        }
+        System.out.printf("%-10s %10d %10.1f%n", "total", total, total / seconds);
+        System.out.printf("dropped (over load.maxOutstanding): %d, max scheduler lag: %.2f ms%n",
+                dropped.sum(), millis(maxSchedulerLagNanos.get()));
+        if (!errorTypes.isEmpty()) System.out.println("errors by cause: " + errorTypes);
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        while (error.getCause() != null) error = error.getCause();
+        return error;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * One entry of the workload mix and the results recorded for it.
+     */
+    private static class Route {
+        final String name;
+        final int weight;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder clientErrors = new LongAdder();
+        final LongAdder serverErrors = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        Route(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+}
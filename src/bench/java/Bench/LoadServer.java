@@ -0,0 +1,38 @@
+package Bench;
+
+import Controller.SocialMediaController;
+
+import io.javalin.Javalin;
+
+/**
+ * Runs the app against a freshly seeded benchmark database until the process is stopped, for LoadGenerator to target
+ * from another JVM with load.target. Takes the same load.accounts, load.messages and load.port properties as
+ * LoadGenerator, and server modes as usual, e.g. -Dserver.virtualThreads=true.
+ *
+ * Run with: mvn -Pbench package exec:exec@load-server -Dload.jvmArgs="-Dserver.virtualThreads=true"
+ */
+public class LoadServer {
+
+    private static final int ACCOUNTS = Integer.getInteger("load.accounts", 100);
+    private static final int MESSAGES = Integer.getInteger("load.messages", 10000);
+    private static final int PORT = Integer.getInteger("load.port", 8080);
+
+    public static void main(String[] args) {
+        start();
+    }
+
+    /**
+     * Seed the benchmark database (unless -Ddb.url points elsewhere) and start the app on load.port.
+     *
+     * @return the running app.
+     */
+    static Javalin start() {
+        if (System.getProperty("db.url") == null) {
+            System.setProperty("db.url", BenchmarkDatabase.DB_URL);
+        }
+        BenchmarkDatabase.seed(ACCOUNTS, MESSAGES);
+        Javalin app = new SocialMediaController().startAPI();
+        app.start(PORT);
+        return app;
+    }
+}
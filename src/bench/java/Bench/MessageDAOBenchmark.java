@@ -0,0 +1,68 @@
+package Bench;
+
+import DAO.MessageDAO;
+import Model.Message;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MessageDAO hot paths against a seeded H2 database. Table size is set with -p rows=N.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDatabase.DB_URL_ARG)
+public class MessageDAOBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"100"})
+    public int accounts;
+
+    private MessageDAO messageDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.seed(accounts, rows);
+        messageDAO = new MessageDAO();
+    }
+
+    @Benchmark
+    public Message insertMessage() {
+        int postedBy = 1 + ThreadLocalRandom.current().nextInt(accounts);
+        return messageDAO.insertMessage(new Message(postedBy, "benchmark insert", 1669947792L));
+    }
+
+    @Benchmark
+    public Message getMessageById() {
+        return messageDAO.getMessageById(1 + ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    @Benchmark
+    public List<Message> getAllMessages() {
+        return messageDAO.getAllMessages();
+    }
+
+    @Benchmark
+    public List<Message> getAllMessagesByAccountId() {
+        return messageDAO.getAllMessagesByAccountId(1 + ThreadLocalRandom.current().nextInt(accounts));
+    }
+}
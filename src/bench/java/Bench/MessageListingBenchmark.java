@@ -0,0 +1,84 @@
+package Bench;
+
+import DAO.MessageDAO;
+import Util.JsonUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full message listings written as JSON: building a List and serializing it, against streaming rows from the
+ * ResultSet through a JsonGenerator. Run with -prof gc to compare allocation as -p rows grows; the streamed variant's
+ * live heap stays flat while the list variant's grows with the table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDatabase.DB_URL_ARG)
+public class MessageListingBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private MessageDAO messageDAO;
+    private final OutputStream sink = new DiscardingOutputStream();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.seed(100, rows);
+        messageDAO = new MessageDAO();
+    }
+
+    @Benchmark
+    public void listThenSerialize() throws IOException {
+        JsonUtil.MESSAGE_LIST_WRITER.writeValue(sink, messageDAO.getAllMessages());
+    }
+
+    @Benchmark
+    public void streamFromResultSet() throws IOException {
+        try (JsonGenerator generator = JsonUtil.MAPPER.getFactory().createGenerator(sink)) {
+            generator.writeStartArray();
+            messageDAO.streamAllMessages((message_id, posted_by, message_text, time_posted_epoch) -> {
+                generator.writeStartObject();
+                generator.writeNumberField("message_id", message_id);
+                generator.writeNumberField("posted_by", posted_by);
+                generator.writeStringField("message_text", message_text);
+                generator.writeNumberField("time_posted_epoch", time_posted_epoch);
+                generator.writeEndObject();
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Throws every byte away. Unlike OutputStream.nullOutputStream() it stays usable after close(), which Jackson
+     * calls at the end of each write.
+     */
+    private static class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
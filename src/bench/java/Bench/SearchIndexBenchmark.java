@@ -0,0 +1,73 @@
+package Bench;
+
+import Util.SearchIndex;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Top-50 query latency of the in-memory full-text index at millions of messages. Messages are eight words drawn from
+ * a 50,000-word vocabulary with a Zipf-like skew, so "common" (word 10) appears in about one message in 14 and
+ * "rare" (word 20,000) in a few hundred. No database is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchIndexBenchmark {
+
+    private static final int VOCABULARY = 50000;
+    private static final int WORDS_PER_MESSAGE = 8;
+
+    @Param({"1000000"})
+    public int messages;
+
+    private SearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new SearchIndex();
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int id = 1; id <= messages; id++) {
+            text.setLength(0);
+            for (int w = 0; w < WORDS_PER_MESSAGE; w++) {
+                // Inverse-CDF of a 1/x distribution over 1..VOCABULARY.
+                int word = (int) Math.pow(VOCABULARY, random.nextDouble());
+                text.append("word").append(word).append(' ');
+            }
+            index.add(id, text.toString());
+        }
+    }
+
+    @Benchmark
+    public List<Integer> rareTerm() {
+        return index.search("word20000", 50);
+    }
+
+    @Benchmark
+    public List<Integer> commonTerm() {
+        return index.search("word10", 50);
+    }
+
+    @Benchmark
+    public List<Integer> twoTerms() {
+        return index.search("word10 word500", 50);
+    }
+}
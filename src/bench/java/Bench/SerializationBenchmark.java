@@ -0,0 +1,59 @@
+package Bench;
+
+import Model.Message;
+import Util.JsonUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Jackson serialization of Message lists: the shared prebuilt writer against a fresh ObjectMapper per call, which is
+ * what every handler used to do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int size;
+
+    private List<Message> messages;
+
+    @Setup
+    public void setUp() {
+        messages = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            messages.add(new Message(i, 1 + (i % 100), "benchmark message number " + i, 1669947792L + i));
+        }
+    }
+
+    @Benchmark
+    public byte[] sharedListWriter() throws JsonProcessingException {
+        return JsonUtil.MESSAGE_LIST_WRITER.writeValueAsBytes(messages);
+    }
+
+    @Benchmark
+    public String newObjectMapperPerCall() throws JsonProcessingException {
+        return new ObjectMapper().writeValueAsString(messages);
+    }
+}
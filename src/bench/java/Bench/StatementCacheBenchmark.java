@@ -0,0 +1,61 @@
+package Bench;
+
+import DAO.MessageDAO;
+import Model.Message;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The per-call cost of getMessageById and insertMessage with the pool's prepared statement cache off
+ * (statementCacheSize=0) and on. Single-threaded, so the time per operation is CPU per call; add -prof gc to compare
+ * allocation too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDatabase.DB_URL_ARG)
+public class StatementCacheBenchmark {
+
+    @Param({"0", "32"})
+    public int statementCacheSize;
+
+    @Param({"10000"})
+    public int rows;
+
+    private MessageDAO messageDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Each parameter combination runs in a fresh fork, so this is set before ConnectionUtil builds the pool.
+        System.setProperty("pool.statementCacheSize", Integer.toString(statementCacheSize));
+        BenchmarkDatabase.seed(100, rows);
+        messageDAO = new MessageDAO();
+    }
+
+    @Benchmark
+    public Message getMessageById() {
+        return messageDAO.getMessageById(1 + ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    @Benchmark
+    public Message insertMessage() {
+        int postedBy = 1 + ThreadLocalRandom.current().nextInt(100);
+        return messageDAO.insertMessage(new Message(postedBy, "benchmark insert", 1669947792L));
+    }
+}
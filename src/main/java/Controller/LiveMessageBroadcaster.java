@@ -0,0 +1,258 @@
+package Controller;
+
+import Model.Message;
+import Model.MessageEvent;
+import Util.BroadcastRing;
+import Util.JsonUtil;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.javalin.websocket.WsConfig;
+import io.javalin.websocket.WsContext;
+
+/**
+ * Pushes message events from a BroadcastRing to WebSocket subscribers of /messages/live.
+ *
+ * One dispatcher thread consumes the ring. It serializes each event once and hands the text to every matching
+ * subscriber with Jetty's non-blocking send, so neither publishers nor the dispatcher ever wait on a socket. A
+ * subscriber with more than live.maxPendingSends sends still in flight is disconnected as a slow consumer. If the
+ * dispatcher itself falls a whole ring behind, it skips to the oldest event still held and counts the ones lost.
+ *
+ * Subscribers may pass posted_by to receive only that account's messages. They are indexed by it, so an event costs
+ * one send per interested subscriber rather than a scan of all of them.
+ */
+public class LiveMessageBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveMessageBroadcaster.class);
+    private static final int MAX_PENDING_SENDS = Integer.getInteger("live.maxPendingSends", 256);
+    private static final int MAX_SUBSCRIBERS = Integer.getInteger("live.maxSubscribers", 50000);
+    private static final String SUBSCRIBER = "live.subscriber";
+
+    private final BroadcastRing<MessageEvent> ring;
+    private final Set<Subscriber> allMessages = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Set<Subscriber>> byPostedBy = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder eventsLost = new LongAdder();
+    private final LongAdder slowConsumers = new LongAdder();
+    private final LongAdder failedSubscribers = new LongAdder();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    /**
+     * @param ring the ring MessageService publishes events into.
+     */
+    public LiveMessageBroadcaster(BroadcastRing<MessageEvent> ring) {
+        this.ring = ring;
+        dispatcher = new Thread(this::dispatch, "live-message-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Configure the WebSocket endpoint. The optional posted_by query parameter restricts events to one account.
+     *
+     * @param ws the endpoint's configuration.
+     */
+    public void configure(WsConfig ws) {
+        ws.onConnect(this::subscribe);
+        ws.onClose(this::unsubscribe);
+        ws.onError(this::unsubscribe);
+    }
+
+    private void subscribe(WsContext ctx) throws JsonProcessingException {
+        Integer postedBy = null;
+        String param = ctx.queryParam("posted_by");
+        if (param != null) {
+            try {
+                postedBy = Integer.parseInt(param);
+            } catch (NumberFormatException e) {
+                ctx.closeSession(StatusCode.POLICY_VIOLATION, "posted_by must be an integer");
+                return;
+            }
+        }
+        if (subscriberCount.incrementAndGet() > MAX_SUBSCRIBERS) {
+            subscriberCount.decrementAndGet();
+            ctx.closeSession(StatusCode.TRY_AGAIN_LATER, "too many subscribers");
+            return;
+        }
+        Subscriber subscriber = new Subscriber(ctx.session, postedBy);
+        ctx.attribute(SUBSCRIBER, subscriber);
+        if (postedBy == null) {
+            allMessages.add(subscriber);
+        } else {
+            byPostedBy.compute(postedBy, (key, subscribers) -> {
+                if (subscribers == null) subscribers = ConcurrentHashMap.newKeySet();
+                subscribers.add(subscriber);
+                return subscribers;
+            });
+        }
+        subscriber.send(JsonUtil.MESSAGE_EVENT_WRITER.writeValueAsString(new MessageEvent("subscribed", null)));
+    }
+
+    private void unsubscribe(WsContext ctx) {
+        Subscriber subscriber = ctx.attribute(SUBSCRIBER);
+        if (subscriber != null) remove(subscriber);
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        boolean[] removed = new boolean[1];
+        if (subscriber.postedBy == null) {
+            removed[0] = allMessages.remove(subscriber);
+        } else {
+            // Drop an account's set once empty, atomically with respect to subscribe() adding to it.
+            byPostedBy.computeIfPresent(subscriber.postedBy, (key, subscribers) -> {
+                removed[0] = subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+        if (removed[0]) subscriberCount.decrementAndGet();
+        return removed[0];
+    }
+
+    /**
+     * Dispatcher loop: read events in sequence order and fan each out to its subscribers.
+     */
+    private void dispatch() {
+        long next = ring.getNextSequence();
+        while (running) {
+            Object result = ring.read(next);
+            if (result == BroadcastRing.NOT_PUBLISHED) {
+                ring.awaitPublished(next, 100, TimeUnit.MILLISECONDS);
+                continue;
+            }
+            if (result == BroadcastRing.LAPPED) {
+                long oldest = Math.max(next + 1, ring.getNextSequence() - ring.getCapacity());
+                eventsLost.add(oldest - next);
+                next = oldest;
+                continue;
+            }
+            next++;
+            MessageEvent event = (MessageEvent) result;
+            try {
+                deliver(event);
+            } catch (RuntimeException | JsonProcessingException e) {
+                log.warn("Failed to deliver a live message event", e);
+            }
+        }
+    }
+
+    private void deliver(MessageEvent event) throws JsonProcessingException {
+        Message message = event.getMessage();
+        Set<Subscriber> filtered = byPostedBy.get(message.getPosted_by());
+        if (allMessages.isEmpty() && (filtered == null || filtered.isEmpty())) return;
+        String text = JsonUtil.MESSAGE_EVENT_WRITER.writeValueAsString(event);
+        for (Subscriber subscriber : allMessages) sendTo(subscriber, text);
+        if (filtered != null) {
+            for (Subscriber subscriber : filtered) sendTo(subscriber, text);
+        }
+    }
+
+    /**
+     * Send to one subscriber. A send that throws, as it does on a session closed before onClose has run, drops that
+     * subscriber and leaves the others to be served.
+     */
+    private void sendTo(Subscriber subscriber, String text) {
+        try {
+            subscriber.send(text);
+        } catch (RuntimeException e) {
+            log.warn("Dropping live subscriber after a failed send", e);
+            if (remove(subscriber)) {
+                failedSubscribers.increment();
+                subscriber.session.close(StatusCode.SERVER_ERROR, "send failed");
+            }
+        }
+    }
+
+    /**
+     * @return the number of connected subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * @return the number of event messages handed to subscribers' sockets.
+     */
+    public long getEventsSent() {
+        return eventsSent.sum();
+    }
+
+    /**
+     * @return the number of events overwritten before the dispatcher could read them.
+     */
+    public long getEventsLost() {
+        return eventsLost.sum();
+    }
+
+    /**
+     * @return the number of subscribers disconnected for falling behind.
+     */
+    public long getSlowConsumerCount() {
+        return slowConsumers.sum();
+    }
+
+    /**
+     * @return the number of subscribers dropped because sending to them threw.
+     */
+    public long getFailedSubscriberCount() {
+        return failedSubscribers.sum();
+    }
+
+    /**
+     * Stop the dispatcher. Subscribers are closed along with the server.
+     */
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+    }
+
+    /**
+     * A connected socket, its filter and the number of its sends still in flight.
+     */
+    private class Subscriber implements WriteCallback {
+        final Session session;
+        final Integer postedBy;
+        final AtomicInteger pending = new AtomicInteger();
+
+        Subscriber(Session session, Integer postedBy) {
+            this.session = session;
+            this.postedBy = postedBy;
+        }
+
+        void send(String text) {
+            if (pending.incrementAndGet() > MAX_PENDING_SENDS) {
+                pending.decrementAndGet();
+                if (remove(this)) {
+                    slowConsumers.increment();
+                    session.close(StatusCode.TRY_AGAIN_LATER, "slow consumer");
+                }
+                return;
+            }
+            session.getRemote().sendString(text, this);
+            eventsSent.increment();
+        }
+
+        @Override
+        public void writeSuccess() {
+            pending.decrementAndGet();
+        }
+
+        @Override
+        public void writeFailed(Throwable cause) {
+            pending.decrementAndGet();
+        }
+    }
+}
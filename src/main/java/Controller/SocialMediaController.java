@@ -2,15 +2,51 @@ package Controller;
 
 import Service.MessageService;
 import Service.AccountService;
+import Service.FeedService;
 import Model.Message;
 import Model.Account;
+import Model.MessageBatchResult;
+import Model.MessagePage;
+import Util.ChangeTracker;
+import Util.ConnectionPool;
+import Util.ConnectionUtil;
+import Util.DatabaseUnavailableException;
+import Util.DbExecutor;
+import Util.JsonUtil;
+import Util.LruCache;
+import Util.MessageJsonCache;
+import Util.Metrics;
+import Util.RequestMetrics;
+import Util.SchemaMigrator;
+import DAO.GroupCommitMessageWriter;
+import DAO.MessageRowHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import io.javalin.Javalin;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.UnauthorizedResponse;
+import io.javalin.util.ConcurrencyUtil;
+import org.eclipse.jetty.server.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * TODO: You will need to write your own endpoints and handlers for your controller. The endpoints you will need can be
@@ -19,8 +55,107 @@ import io.javalin.http.Context;
  */
 public class SocialMediaController {
 
+    private static final Logger log = LoggerFactory.getLogger(SocialMediaController.class);
+
+    /**
+     * Page size used when a paginated listing is requested without an explicit limit.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    /**
+     * Largest page a client may request.
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+    /**
+     * Most messages one POST /messages/batch may carry (-Dmessages.maxBatch). A batch is one transaction holding a
+     * pooled connection and H2's write locks, so its size must not be the client's choice.
+     */
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("messages.maxBatch", 1000);
+    /**
+     * When true (-Dserver.virtualThreads=true), Jetty runs every request on its own virtual thread, so handlers
+     * blocked on JDBC no longer hold a platform thread. Database concurrency stays bounded either way, because
+     * requests queue on the connection pool's permits, which are sized to pool.maxSize. Neither mode is faster when
+     * the CPU or the pool is the limit; compare them on the target host with LoadGenerator's load.clients.
+     */
+    private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("server.virtualThreads");
+    /**
+     * Retry-After value, in seconds, sent with a 503 when the DbExecutor queue is full or the connection pool is
+     * exhausted.
+     */
+    private static final String RETRY_AFTER_SECONDS = System.getProperty("server.retryAfterSeconds", "1");
+    /**
+     * Context attribute holding the System.nanoTime() at which a request was received.
+     */
+    private static final String REQUEST_START = "metrics.requestStart";
+    /**
+     * Context attribute holding the account ID of the request's session, absent when no session token was sent.
+     */
+    private static final String SESSION_ACCOUNT = "session.accountId";
+    /**
+     * Response header carrying the session token issued by /login.
+     */
+    private static final String SESSION_TOKEN_HEADER = "X-Session-Token";
+    /**
+     * Context attribute holding the ETag conditional() worked out for the response.
+     */
+    private static final String RESPONSE_ETAG = "http.etag";
+    /**
+     * Bodies of a conditional GET at least this large (-Dgzip.minBytes) are sent gzip-compressed to clients that
+     * accept it. Javalin compresses other responses of this size on the fly.
+     */
+    private static final int GZIP_MIN_BYTES = Integer.getInteger("gzip.minBytes", 1500);
+    /**
+     * Largest compressed body kept in gzipCache (-Dgzip.maxCachedBytes); larger ones are compressed every time.
+     */
+    private static final int GZIP_MAX_CACHED_BYTES = Integer.getInteger("gzip.maxCachedBytes", 1 << 20);
+
     private MessageService messageService;
     private AccountService accountService;
+    private FeedService feedService;
+    private LiveMessageBroadcaster liveBroadcaster;
+    private MessageJsonCache jsonCache;
+    /**
+     * Gzip-compressed bodies of conditional GETs, keyed by URL and ETag, so each version of a resource is compressed
+     * once. A key whose ETag is out of date is never asked for again and ages out. Its size can be set with
+     * -Dgzip.cacheSize.
+     */
+    private final LruCache<String, byte[]> gzipCache = new LruCache<>(Integer.getInteger("gzip.cacheSize", 256));
+    /**
+     * When true, handlers run on a bounded DbExecutor and hand Jetty a future, so Jetty threads are never held by
+     * JDBC. Requests arriving while the executor queue is full get 503 with Retry-After.
+     */
+    private final boolean asyncHandlers;
+    /**
+     * Executor the handlers run on in async mode, null otherwise.
+     */
+    private DbExecutor dbExecutor;
+    /**
+     * Executor /register and /login run on, so password hashing never holds a Jetty thread. Each request costs one
+     * PBKDF2 hash of tens of milliseconds of CPU, so together they are capped at about threads * 1000 / hash-millis
+     * requests a second. The thread count (-Dpassword.hashThreads) defaults to one per core: fewer leaves cores idle
+     * during a login burst, more only adds contention. The price is that a burst can take every core away from the
+     * other routes; set fewer threads to reserve CPU for them, or lower -Dpassword.pbkdf2Iterations.
+     */
+    private DbExecutor credentialExecutor;
+    /**
+     * Released once the schema is migrated and Jetty is serving; see awaitReady().
+     */
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+    private volatile boolean ready;
+
+    /**
+     * Create a controller whose handlers run on Jetty threads, or on a DbExecutor with -Dserver.asyncHandlers=true.
+     */
+    public SocialMediaController() {
+        this(Boolean.getBoolean("server.asyncHandlers"));
+    }
+
+    /**
+     * @param asyncHandlers true to run handlers on a bounded DbExecutor sized by -Ddb.executor.threads and
+     *                      -Ddb.executor.queueCapacity, false to run them on Jetty threads.
+     */
+    public SocialMediaController(boolean asyncHandlers) {
+        this.asyncHandlers = asyncHandlers;
+    }
 
     /**
      * In order for the test cases to work, you will need to write the endpoints in the startAPI() method, as the test
@@ -28,95 +163,521 @@ public class SocialMediaController {
      * @return a Javalin app object which defines the behavior of the Javalin controller.
      */
     public Javalin startAPI() {
-        Javalin app = Javalin.create();
-        messageService = new MessageService();
+        // Javalin picks virtual threads on its own whenever the JDK has them; make the choice explicit instead.
+        ConcurrencyUtil.INSTANCE.setUseLoom(VIRTUAL_THREADS);
+        SchemaMigrator.migrate();
+        Javalin app = Javalin.create(config -> config.jsonMapper(new JsonUtil.JavalinMapper()));
         accountService = new AccountService();
+        messageService = new MessageService(accountService);
+        feedService = new FeedService(accountService, messageService);
+        liveBroadcaster = new LiveMessageBroadcaster(messageService.getEventRing());
+        jsonCache = messageService.getJsonCache();
+        if (asyncHandlers) {
+            dbExecutor = new DbExecutor(
+                Integer.getInteger("db.executor.threads", ConnectionUtil.getPool().getMaxSize()),
+                Integer.getInteger("db.executor.queueCapacity", 1000)
+            );
+        }
+        credentialExecutor = new DbExecutor("credential-executor",
+            Integer.getInteger("password.hashThreads", Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger("password.hashQueueCapacity", 200)
+        );
+        app.events(event -> {
+            event.serverStarted(this::markReady);
+            event.serverStopping(() -> ready = false);
+            event.serverStopped(this::stop);
+        });
+        registerGauges();
 
-        app.post("/register", this::postRegisterHandler);
-        app.post("/login", this::postLoginHandler);
-        app.post("/messages", this::postMessageHandler);
-        app.get("/messages", this::getAllMessagesHandler);
-        app.get("/messages/{message_id}", this::getMessageByIdHandler);
-        app.delete("/messages/{message_id}", this::deleteMessageHandler);
-        app.patch("/messages/{message_id}", this::patchMessageHandler);
-        app.get("/accounts/{account_id}/messages", this::getMessagesByAccountHandler);
+        app.exception(DatabaseUnavailableException.class, (e, ctx) -> serviceUnavailable(ctx));
+        app.before(this::startRequestTimer);
+        app.after(this::recordRequestMetrics);
+        app.before("/messages", this::authenticate);
+        app.before("/messages/*", this::authenticate);
+        app.before("/accounts/*", this::authenticate);
+        app.get("/metrics", this::getMetricsHandler);
+        app.get("/ready", this::getReadyHandler);
+        app.post("/register", offload(credentialExecutor, this::postRegisterHandler));
+        app.post("/login", offload(credentialExecutor, this::postLoginHandler));
+        app.post("/messages", async(this::postMessageHandler));
+        app.post("/messages/batch", async(this::postMessageBatchHandler));
+        ChangeTracker changes = messageService.getChangeTracker();
+        app.get("/messages", conditional(ctx -> changes.etag(changes.getVersion()),
+                async(this::getAllMessagesHandler)));
+        app.get("/messages/search", async(this::searchMessagesHandler));
+        app.ws("/messages/live", liveBroadcaster::configure);
+        app.get("/messages/{message_id}", conditional(
+                ctx -> changes.etag(changes.getMessageVersion(Integer.parseInt(ctx.pathParam("message_id")))),
+                async(this::getMessageByIdHandler)));
+        app.delete("/messages/{message_id}", async(this::deleteMessageHandler));
+        app.patch("/messages/{message_id}", async(this::patchMessageHandler));
+        app.get("/accounts/{account_id}/messages", conditional(
+                ctx -> changes.etag(changes.getAccountVersion(Integer.parseInt(ctx.pathParam("account_id")))),
+                async(this::getMessagesByAccountHandler)));
+        app.get("/accounts/{account_id}/feed", async(this::getFeedHandler));
+        app.post("/accounts/{account_id}/following/{followee_id}", async(this::followHandler));
+        app.delete("/accounts/{account_id}/following/{followee_id}", async(this::unfollowHandler));
 
         return app;
     }
 
+    /**
+     * Wait until the app is ready to serve: the schema has been migrated and Jetty is listening. Use this after
+     * app.start() instead of sleeping.
+     *
+     * @param timeoutMillis the longest to wait.
+     * @return true if the app became ready, false if the timeout passed first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitReady(long timeoutMillis) throws InterruptedException {
+        return readyLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Called once Jetty has started. The schema was migrated in startAPI(), before any route was registered.
+     */
+    private void markReady() {
+        ready = true;
+        readyLatch.countDown();
+        long startupMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        Metrics.gauge("app_startup_seconds", "Time from JVM start until the server was first ready.",
+                () -> startupMillis / 1000.0);
+    }
+
+    /**
+     * @return the executor handlers run on in async mode, or null if handlers run on Jetty threads.
+     */
+    public DbExecutor getDbExecutor() {
+        return dbExecutor;
+    }
+
+    /**
+     * Export the connection pool, message cache and executor state as gauges. Registering again replaces the suppliers
+     * of an earlier controller, so /metrics always describes the current one.
+     */
+    private void registerGauges() {
+        ConnectionPool pool = ConnectionUtil.getPool();
+        Metrics.gauge("db_pool_connections_active", "Connections currently borrowed from the pool.",
+                pool::getActiveCount);
+        Metrics.gauge("db_pool_connections_idle", "Open connections waiting in the pool.", pool::getIdleCount);
+        Metrics.gauge("db_pool_connections_total", "Open physical connections.", pool::getTotalCount);
+        Metrics.gauge("db_pool_connections_max", "Largest number of connections the pool will open.",
+                pool::getMaxSize);
+        Metrics.gauge("db_pool_waiting_threads", "Threads waiting to borrow a connection.", pool::getWaitingCount);
+        Metrics.counterFunction("db_pool_connections_created_total", "Physical connections opened.",
+                pool::getCreatedCount);
+        Metrics.counterFunction("db_pool_connections_evicted_total", "Connections closed for idleness or failure.",
+                pool::getEvictedCount);
+        Metrics.counterFunction("db_pool_timeouts_total", "Borrow attempts that timed out.", pool::getTimeoutCount);
+        Metrics.counterFunction("db_statement_cache_hits_total", "prepareStatement calls served from the cache.",
+                pool::getStatementCacheHitCount);
+        Metrics.counterFunction("db_statement_cache_misses_total", "prepareStatement calls that prepared afresh.",
+                pool::getStatementCacheMissCount);
+
+        LruCache<Integer, Message> cache = messageService.getMessageCache();
+        Metrics.gauge("cache_size", "Entries currently cached.", cache::size, "cache", "messages");
+        Metrics.counterFunction("cache_hits_total", "Cache lookups that found an entry.", cache::getHitCount,
+                "cache", "messages");
+        Metrics.counterFunction("cache_misses_total", "Cache lookups that missed.", cache::getMissCount,
+                "cache", "messages");
+        Metrics.counterFunction("cache_evictions_total", "Entries evicted to stay within the size limit.",
+                cache::getEvictionCount, "cache", "messages");
+
+        LruCache<Integer, MessageJsonCache.Fragment> fragments = jsonCache.getCache();
+        Metrics.gauge("cache_size", "Entries currently cached.", fragments::size, "cache", "message_json");
+        Metrics.counterFunction("cache_hits_total", "Cache lookups that found an entry.", fragments::getHitCount,
+                "cache", "message_json");
+        Metrics.counterFunction("cache_misses_total", "Cache lookups that missed.", fragments::getMissCount,
+                "cache", "message_json");
+        Metrics.counterFunction("cache_evictions_total", "Entries evicted to stay within the size limit.",
+                fragments::getEvictionCount, "cache", "message_json");
+        Metrics.gauge("cache_size", "Entries currently cached.", gzipCache::size, "cache", "gzip");
+        Metrics.counterFunction("cache_hits_total", "Cache lookups that found an entry.", gzipCache::getHitCount,
+                "cache", "gzip");
+        Metrics.counterFunction("cache_misses_total", "Cache lookups that missed.", gzipCache::getMissCount,
+                "cache", "gzip");
+        Metrics.counterFunction("cache_evictions_total", "Entries evicted to stay within the size limit.",
+                gzipCache::getEvictionCount, "cache", "gzip");
+
+        GroupCommitMessageWriter writer = messageService.getGroupCommitWriter();
+        Metrics.gauge("search_index_documents", "Messages in the full-text index.",
+                messageService.getSearchIndex()::getDocumentCount);
+        Metrics.gauge("search_index_terms", "Distinct terms in the full-text index.",
+                messageService.getSearchIndex()::getTermCount);
+
+        Metrics.gauge("feed_timelines", "Home timelines held in memory.", feedService::getTimelineCount);
+        Metrics.gauge("feed_celebrities", "Accounts whose messages are merged into feeds on read, not fanned out.",
+                feedService::getCelebrityCount);
+
+        Metrics.gauge("live_subscribers", "WebSocket subscribers to /messages/live.",
+                liveBroadcaster::getSubscriberCount);
+        Metrics.counterFunction("live_events_sent_total", "Message events handed to subscriber sockets.",
+                liveBroadcaster::getEventsSent);
+        Metrics.counterFunction("live_events_lost_total", "Message events overwritten before they were dispatched.",
+                liveBroadcaster::getEventsLost);
+        Metrics.counterFunction("live_slow_consumers_total", "Subscribers disconnected for falling behind.",
+                liveBroadcaster::getSlowConsumerCount);
+        Metrics.counterFunction("live_failed_subscribers_total", "Subscribers dropped because a send to them threw.",
+                liveBroadcaster::getFailedSubscriberCount);
+
+        Metrics.gauge("group_commit_queue_depth", "Messages waiting for the next group commit.",
+                () -> writer != null ? writer.getQueueDepth() : 0);
+
+        DbExecutor executor = dbExecutor;
+        Metrics.gauge("db_executor_queue_depth", "Requests waiting for a database worker.",
+                () -> executor != null ? executor.getQueueDepth() : 0);
+        Metrics.gauge("db_executor_active_threads", "Database workers running a request.",
+                () -> executor != null ? executor.getActiveCount() : 0);
+        Metrics.counterFunction("db_executor_rejected_total", "Requests answered 503 because the queue was full.",
+                () -> executor != null ? executor.getRejectedCount() : 0);
+
+        DbExecutor credentials = credentialExecutor;
+        Metrics.gauge("credential_executor_queue_depth", "Register and login requests waiting to hash a password.",
+                credentials::getQueueDepth);
+        Metrics.counterFunction("credential_executor_rejected_total",
+                "Register and login requests answered 503 because the queue was full.", credentials::getRejectedCount);
+        Metrics.gauge("sessions_active", "Login sessions held in memory, including expired ones not yet swept.",
+                accountService::getSessionCount);
+    }
+
+    /**
+     * Before handler - Resolves an Authorization: Bearer session token to its account from memory and keeps the
+     * account ID in the SESSION_ACCOUNT attribute. Requests without the header are let through unauthenticated.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @throws UnauthorizedResponse if the header is not a Bearer token, or the token is unknown or expired.
+     */
+    private void authenticate(Context ctx) {
+        String authorization = ctx.header("Authorization");
+        if (authorization == null) return;
+        if (!authorization.regionMatches(true, 0, "Bearer ", 0, 7)) throw new UnauthorizedResponse();
+        Integer account_id = accountService.getSessionAccountId(authorization.substring(7).trim());
+        if (account_id == null) throw new UnauthorizedResponse();
+        ctx.attribute(SESSION_ACCOUNT, account_id);
+    }
+
+    /**
+     * Before handler - Notes when the request arrived.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     */
+    private void startRequestTimer(Context ctx) {
+        ctx.attribute(REQUEST_START, System.nanoTime());
+    }
+
+    /**
+     * After handler - Records the request's latency and status code under its method and route pattern, so
+     * /messages/1 and /messages/2 share one series. Requests no route matched are recorded under route="unmatched".
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     */
+    private void recordRequestMetrics(Context ctx) {
+        Long start = ctx.attribute(REQUEST_START);
+        if (start == null) return;
+        String route = ctx.endpointHandlerPath();
+        if (route == null || route.isEmpty()) route = "unmatched";
+        RequestMetrics.of(ctx.method().name(), route).record(System.nanoTime() - start, ctx.statusCode());
+    }
+
+    /**
+     * GET '/metrics' Handler - Exposes request, DAO, connection pool, cache and executor metrics in the Prometheus
+     * text format.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     */
+    private void getMetricsHandler(Context ctx) {
+        ctx.contentType("text/plain; version=0.0.4; charset=utf-8").result(Metrics.scrape());
+    }
+
+    /**
+     * GET '/ready' Handler - Readiness probe. Responds 200 once the server is serving and 503 once it is shutting
+     * down.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     */
+    private void getReadyHandler(Context ctx) {
+        if (ready) {
+            ctx.status(200).result("ready");
+        } else {
+            ctx.status(HttpStatus.SERVICE_UNAVAILABLE).result("not ready");
+        }
+    }
+
+    /**
+     * Release the services' and executor's background resources once the server has stopped.
+     */
+    private void stop() {
+        liveBroadcaster.shutdown();
+        messageService.close();
+        accountService.close();
+        credentialExecutor.shutdown();
+        if (dbExecutor != null) dbExecutor.shutdown();
+    }
+
+    /**
+     * In async mode, wrap a handler so its work runs on the DbExecutor and Jetty only waits on a future. In sync mode
+     * the handler is returned as is.
+     *
+     * @param handler the blocking handler.
+     * @return the handler to register.
+     */
+    private Handler async(Handler handler) {
+        return asyncHandlers ? offload(dbExecutor, handler) : handler;
+    }
+
+    /**
+     * Wrap a handler so its work runs on the given executor and Jetty only waits on a future. If the executor's queue
+     * is full, respond 503 with Retry-After right away.
+     *
+     * @param executor the executor to run the handler on.
+     * @param handler the blocking handler.
+     * @return the handler to register.
+     */
+    private Handler offload(DbExecutor executor, Handler handler) {
+        return ctx -> {
+            CompletableFuture<Void> future;
+            try {
+                future = executor.submit(() -> {
+                    try {
+                        handler.handle(ctx);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                serviceUnavailable(ctx);
+                return;
+            }
+            ctx.future(() -> future);
+        };
+    }
+
+    /**
+     * Respond 503 with Retry-After: the request was refused because the executor queue was full, or no database
+     * connection became free in time.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     */
+    private void serviceUnavailable(Context ctx) {
+        ctx.header("Retry-After", RETRY_AFTER_SECONDS).status(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Wrap a GET handler with conditional request support. The ETag is worked out from in-memory versions before the
+     * handler runs, and a request whose If-None-Match lists it, or its gzip variant, is answered 304 on the spot,
+     * without reaching the executor, the database or Jackson.
+     *
+     * @param etag computes the current ETag of the requested resource.
+     * @param handler the handler producing the full response.
+     * @return the handler to register.
+     */
+    private Handler conditional(Function<Context, String> etag, Handler handler) {
+        return ctx -> {
+            String tag = etag.apply(ctx);
+            ctx.attribute(RESPONSE_ETAG, tag);
+            ctx.header(Header.VARY, Header.ACCEPT_ENCODING);
+            String ifNoneMatch = ctx.header(Header.IF_NONE_MATCH);
+            if (matchesAny(ifNoneMatch, tag)) {
+                ctx.header(Header.ETAG, tag).status(HttpStatus.NOT_MODIFIED);
+                return;
+            }
+            if (matchesAny(ifNoneMatch, gzipETag(tag))) {
+                ctx.header(Header.ETAG, gzipETag(tag)).status(HttpStatus.NOT_MODIFIED);
+                return;
+            }
+            ctx.header(Header.ETAG, tag);
+            handler.handle(ctx);
+        };
+    }
+
+    /**
+     * @param tag a strong ETag.
+     * @return the ETag of the gzip-encoded variant, which as a different representation needs its own strong ETag.
+     */
+    private static String gzipETag(String tag) {
+        return tag.substring(0, tag.length() - 1) + "--gzip\"";
+    }
+
+    /**
+     * @param acceptEncoding the Accept-Encoding header, possibly null.
+     * @return true if it lists gzip, or *, without q=0.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) continue;
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") && Double.parseDouble(param.substring(2)) == 0) refused = true;
+            }
+            if (!refused) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param ifNoneMatch the If-None-Match header, possibly null.
+     * @param tag the current ETag.
+     * @return true if the header is * or lists tag. If-None-Match uses weak comparison, so a W/ prefix is ignored.
+     */
+    private static boolean matchesAny(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+            if (candidate.equals("*") || candidate.equals(tag)) return true;
+        }
+        return false;
+    }
+
     /**
      * POST '/register' Handler - Creates a new account.
      * 
      * @param ctx Javalin context object contains info about HTTP request and response.
-     * @throws JsonProcessingException
+     * @throws IOException if the request body is not valid JSON.
      */
-    private void postRegisterHandler(Context ctx) throws JsonProcessingException {
-        ObjectMapper om = new ObjectMapper();
-        String jsonString = ctx.body();
-        Account account = om.readValue(jsonString, Account.class);
+    private void postRegisterHandler(Context ctx) throws IOException {
+        Account account = JsonUtil.readAccount(ctx.bodyInputStream());
         Account newAccount = accountService.addAccount(account);
         if (newAccount != null) {
-            ctx.json(newAccount).status(200);
+            json(ctx, JsonUtil.ACCOUNT_WRITER, newAccount).status(200);
         } else {
             ctx.status(400);
         }
     }
 
     /**
-     * POST '/login' Handler - Verifies Login attempt with username and password.
+     * POST '/login' Handler - Verifies Login attempt with username and password. On success, starts a session and
+     * returns its token in the X-Session-Token header; message endpoints accept it as Authorization: Bearer.
      * 
      * @param ctx Javalin context object contains info about HTTP request and response.
-     * @throws JsonProcessingException
+     * @throws IOException if the request body is not valid JSON.
      */
-    private void postLoginHandler(Context ctx) throws JsonProcessingException {
-        ObjectMapper om = new ObjectMapper();
-        String jsonString = ctx.body();
-        Account account = om.readValue(jsonString, Account.class);
+    private void postLoginHandler(Context ctx) throws IOException {
+        Account account = JsonUtil.readAccount(ctx.bodyInputStream());
         Account existingAccount = accountService.validLogin(account);
         if (existingAccount != null) {
-            ctx.json(existingAccount).status(200);
+            ctx.header(SESSION_TOKEN_HEADER, accountService.startSession(existingAccount.getAccount_id()));
+            json(ctx, JsonUtil.ACCOUNT_WRITER, existingAccount).status(200);
         } else {
             ctx.status(401);
         }
     }
 
     /**
-     * POST '/messages' Handler - Creates a new message.
+     * POST '/messages' Handler - Creates a new message. With a session token, posted_by may be omitted and is taken
+     * from the session.
      * 
      * @param ctx Javalin context object contains info about HTTP request and response.
-     * @throws JsonProcessingException
+     * @throws IOException if the request body is not valid JSON.
      */
-    private void postMessageHandler(Context ctx) throws JsonProcessingException {
-        ObjectMapper om = new ObjectMapper();
-        String jsonString = ctx.body();
-        Message message = om.readValue(jsonString, Message.class);
+    private void postMessageHandler(Context ctx) throws IOException {
+        Message message = JsonUtil.readMessage(ctx.bodyInputStream());
+        if (!claimForSession(ctx, message)) {
+            ctx.status(HttpStatus.FORBIDDEN);
+            return;
+        }
         Message newMessage = messageService.addMessage(message);
-        if (newMessage != null && accountService.getAccountById(message.getPosted_by()) != null) {
-            ctx.json(newMessage).status(200);
+        if (newMessage != null) {
+            ctx.status(200);
+            sendJson(ctx, jsonCache.message(newMessage));
         } else {
             ctx.status(400);
         }
     }
 
     /**
-     * GET '/messages' Handler - Retrieves all messages.
+     * POST '/messages/batch' Handler - Creates several messages in one transaction. Responds with one result per
+     * message, in request order, giving its status and, if created, the message with its message_id. A batch of more
+     * than MAX_BATCH_SIZE messages is refused with 413 before any of it is validated.
+     * 
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @throws IOException if the request body is not a valid JSON array of messages.
+     */
+    private void postMessageBatchHandler(Context ctx) throws IOException {
+        List<Message> messages = JsonUtil.readMessages(ctx.bodyInputStream(), MAX_BATCH_SIZE);
+        if (messages == null) {
+            ctx.status(400);
+            return;
+        }
+        if (messages.size() > MAX_BATCH_SIZE) {
+            ctx.status(HttpStatus.CONTENT_TOO_LARGE);
+            return;
+        }
+        for (Message message : messages) {
+            if (message != null && !claimForSession(ctx, message)) {
+                ctx.status(HttpStatus.FORBIDDEN);
+                return;
+            }
+        }
+        List<MessageBatchResult> results = messageService.addMessages(messages);
+        json(ctx, JsonUtil.BATCH_RESULT_LIST_WRITER, results).status(200);
+    }
+
+    /**
+     * GET '/messages' Handler - Retrieves all messages. When a limit or cursor query parameter is given, responds with
+     * one MessagePage instead of the full list. With stream=true the full list is streamed from the database.
      * 
      * @param ctx Javalin context object contains info about HTTP request and response.
+     * @throws IOException if the response could not be serialized.
      */
-    private void getAllMessagesHandler(Context ctx) {
+    private void getAllMessagesHandler(Context ctx) throws IOException {
+        if (isStreamed(ctx)) {
+            streamJsonArray(ctx, messageService::streamAllMessages);
+            return;
+        }
+        if (isPaged(ctx)) {
+            Integer limit = pageLimit(ctx);
+            if (limit == null) {
+                ctx.status(400);
+                return;
+            }
+            try {
+                MessagePage page = messageService.getMessagePage(ctx.queryParam("cursor"), limit);
+                ctx.status(200);
+                sendJson(ctx, jsonCache.page(page));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+            }
+            return;
+        }
         List<Message> messages = messageService.getAllMessages();
-        ctx.json(messages).status(200);
+        ctx.status(200);
+        sendJson(ctx, jsonCache.list(messages));
+    }
+
+    /**
+     * GET '/messages/search' Handler - Full-text search over message text. Takes the words to look for in q and an
+     * optional limit (default 50, at most 1000), and responds with the best matching messages, best first.
+     * 
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @throws IOException if the response could not be serialized.
+     */
+    private void searchMessagesHandler(Context ctx) throws IOException {
+        String query = ctx.queryParam("q");
+        Integer limit = pageLimit(ctx);
+        if (query == null || query.isBlank() || limit == null) {
+            ctx.status(400);
+            return;
+        }
+        List<Message> messages = messageService.searchMessages(query, limit);
+        ctx.status(200);
+        sendJson(ctx, jsonCache.list(messages));
     }
 
     /**
      * GET 'messages/{message_id}' Handler - Retrieves the message with message_id.
      * 
      * @param ctx Javalin context object contains info about HTTP request and response.
+     * @throws IOException if the response could not be serialized.
      */
-    private void getMessageByIdHandler(Context ctx) {
+    private void getMessageByIdHandler(Context ctx) throws IOException {
         int id = Integer.parseInt(ctx.pathParam("message_id"));
         Message message = messageService.getMessageById(id);
-        if (message != null) ctx.json(message);
+        if (message != null) sendJson(ctx, jsonCache.message(message));
         ctx.status(200);
     }
 
@@ -124,14 +685,16 @@ public class SocialMediaController {
      * DELETE '/messages/{message_id}' Handler - Deletes the message with message_id.
      * 
      * @param ctx Javalin context object contains info about HTTP request and response.
+     * @throws IOException if the response could not be serialized.
      */
-    private void deleteMessageHandler(Context ctx) {
+    private void deleteMessageHandler(Context ctx) throws IOException {
         int id = Integer.parseInt(ctx.pathParam("message_id"));
-        Message message = messageService.getMessageById(id);
-        if (message != null) {
-            messageService.deleteMessage(id);
-            ctx.json(message);
+        if (!ownedBySession(ctx, id)) {
+            ctx.status(HttpStatus.FORBIDDEN);
+            return;
         }
+        Message message = messageService.deleteMessage(id);
+        if (message != null) json(ctx, JsonUtil.MESSAGE_WRITER, message);
         ctx.status(200);
     }
 
@@ -139,30 +702,282 @@ public class SocialMediaController {
      * PATCH '/messages/{message_id}' Handler - Updates the message with message_id.
      * 
      * @param ctx Javalin context object contains info about HTTP request and response.
-     * @throws JsonProcessingException
+     * @throws IOException if the request body is not valid JSON.
      */
-    private void patchMessageHandler(Context ctx) throws JsonProcessingException {
-        ObjectMapper om = new ObjectMapper();
+    private void patchMessageHandler(Context ctx) throws IOException {
         int id = Integer.parseInt(ctx.pathParam("message_id"));
-        String jsonString = ctx.body();
-        Message message = om.readValue(jsonString, Message.class);
+        Message message = JsonUtil.readMessage(ctx.bodyInputStream());
+        if (!ownedBySession(ctx, id)) {
+            ctx.status(HttpStatus.FORBIDDEN);
+            return;
+        }
 
         Message updatedMessage = messageService.updateMessage(id, message);
         if (updatedMessage != null) {
-            ctx.json(updatedMessage).status(200);
+            ctx.status(200);
+            sendJson(ctx, jsonCache.message(updatedMessage));
         } else {
             ctx.status(400);
         }
     }
 
     /**
-     * GET '/accounts/{account_id}/messages' Handler - Retrieves all messages from a user.
+     * GET '/accounts/{account_id}/messages' Handler - Retrieves all messages from a user. When a limit or cursor query
+     * parameter is given, responds with one MessagePage instead of the full list. With stream=true the full list is
+     * streamed from the database.
      * 
      * @param ctx Javalin context object contains info about HTTP request and response.
+     * @throws IOException if the response could not be serialized.
      */
-    private void getMessagesByAccountHandler(Context ctx) {
+    private void getMessagesByAccountHandler(Context ctx) throws IOException {
         int id = Integer.parseInt(ctx.pathParam("account_id"));
+        if (isStreamed(ctx)) {
+            streamJsonArray(ctx, handler -> messageService.streamAllMessagesByAccountId(id, handler));
+            return;
+        }
+        if (isPaged(ctx)) {
+            Integer limit = pageLimit(ctx);
+            if (limit == null) {
+                ctx.status(400);
+                return;
+            }
+            try {
+                MessagePage page = messageService.getMessagePageByAccountId(id, ctx.queryParam("cursor"), limit);
+                ctx.status(200);
+                sendJson(ctx, jsonCache.page(page));
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+            }
+            return;
+        }
         List<Message> messages = messageService.getAllMessagesByAccountId(id);
-        ctx.json(messages).status(200);
+        ctx.status(200);
+        sendJson(ctx, jsonCache.list(messages));
+    }
+
+    /**
+     * Attribute a new message to the request's session account, if there is a session.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @param message the message to be posted; posted_by is filled in when it was omitted.
+     * @return false if the message names a different poster than the session's account.
+     */
+    private boolean claimForSession(Context ctx, Message message) {
+        Integer account_id = ctx.attribute(SESSION_ACCOUNT);
+        if (account_id == null) return true;
+        if (message.getPosted_by() == 0) message.setPosted_by(account_id);
+        return message.getPosted_by() == account_id;
+    }
+
+    /**
+     * Check that the request's session, if any, may modify a message. posted_by never changes, so the lookup is
+     * served from the message cache and the check cannot go stale before the write that follows it.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @param message_id the ID of an existing message.
+     * @return true if the request has no session, the message does not exist, or the session's account posted it.
+     */
+    private boolean ownedBySession(Context ctx, int message_id) {
+        Integer account_id = ctx.attribute(SESSION_ACCOUNT);
+        if (account_id == null) return true;
+        Message message = messageService.getMessageById(message_id);
+        return message == null || message.getPosted_by() == account_id;
+    }
+
+    /**
+     * GET '/accounts/{account_id}/feed' Handler - Retrieves one page of an account's home feed: messages from the
+     * accounts it follows, newest first. Takes the same limit and cursor query parameters as paginated listings.
+     * 
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @throws IOException if the response could not be serialized.
+     */
+    private void getFeedHandler(Context ctx) throws IOException {
+        int id = Integer.parseInt(ctx.pathParam("account_id"));
+        Integer limit = pageLimit(ctx);
+        if (limit == null) {
+            ctx.status(400);
+            return;
+        }
+        try {
+            MessagePage page = feedService.getFeedPage(id, ctx.queryParam("cursor"), limit);
+            ctx.status(200);
+            sendJson(ctx, jsonCache.page(page));
+        } catch (IllegalArgumentException e) {
+            ctx.status(400);
+        }
+    }
+
+    /**
+     * POST '/accounts/{account_id}/following/{followee_id}' Handler - Makes account_id follow followee_id. Following
+     * an account already followed succeeds again.
+     * 
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     */
+    private void followHandler(Context ctx) {
+        int id = Integer.parseInt(ctx.pathParam("account_id"));
+        int followee = Integer.parseInt(ctx.pathParam("followee_id"));
+        if (!actsForSession(ctx, id)) {
+            ctx.status(HttpStatus.FORBIDDEN);
+            return;
+        }
+        ctx.status(feedService.follow(id, followee) ? 200 : 400);
+    }
+
+    /**
+     * DELETE '/accounts/{account_id}/following/{followee_id}' Handler - Makes account_id stop following followee_id.
+     * 
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     */
+    private void unfollowHandler(Context ctx) {
+        int id = Integer.parseInt(ctx.pathParam("account_id"));
+        int followee = Integer.parseInt(ctx.pathParam("followee_id"));
+        if (!actsForSession(ctx, id)) {
+            ctx.status(HttpStatus.FORBIDDEN);
+            return;
+        }
+        feedService.unfollow(id, followee);
+        ctx.status(200);
+    }
+
+    /**
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @param account_id the account the request acts for.
+     * @return true if the request has no session, or its session belongs to account_id.
+     */
+    private boolean actsForSession(Context ctx, int account_id) {
+        Integer session_account_id = ctx.attribute(SESSION_ACCOUNT);
+        return session_account_id == null || session_account_id == account_id;
+    }
+
+    /**
+     * Serialize a value straight to bytes with a prebuilt writer and set it as the JSON response body. This skips the
+     * intermediate String that ctx.json() builds.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @param writer the prebuilt writer for the value's type.
+     * @param value the value to serialize.
+     * @return the context, for chaining.
+     * @throws IOException if the value could not be serialized.
+     */
+    private Context json(Context ctx, ObjectWriter writer, Object value) throws IOException {
+        return ctx.contentType(ContentType.APPLICATION_JSON).result(writer.writeValueAsBytes(value));
+    }
+
+    /**
+     * Set already serialized JSON as the response body. The body of a conditional GET that is large enough is sent
+     * gzip-compressed instead if the client accepts it, compressed once per URL and ETag and then served from
+     * gzipCache.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @param json the body.
+     * @throws IOException if the body of a conditional GET could not be written.
+     */
+    private void sendJson(Context ctx, byte[] json) throws IOException {
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        String etag = ctx.attribute(RESPONSE_ETAG);
+        if (etag == null) {
+            ctx.result(json);
+            return;
+        }
+        byte[] body = json;
+        if (json.length >= GZIP_MIN_BYTES && acceptsGzip(ctx.header(Header.ACCEPT_ENCODING))) {
+            String query = ctx.queryString();
+            String key = ctx.path() + (query != null ? "?" + query : "") + " " + etag;
+            body = gzipCache.get(key);
+            if (body == null) {
+                body = MessageJsonCache.gzip(json);
+                if (body.length <= GZIP_MAX_CACHED_BYTES) gzipCache.put(key, body);
+            }
+            ctx.header(Header.ETAG, gzipETag(etag)).header(Header.CONTENT_ENCODING, "gzip");
+        }
+        // Written past Javalin's output stream, which would otherwise compress it on the fly under the wrong ETag.
+        HttpServletResponse response = ctx.res();
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @return true if the client asked for a single page rather than the full listing.
+     */
+    private boolean isPaged(Context ctx) {
+        return ctx.queryParam("limit") != null || ctx.queryParam("cursor") != null;
+    }
+
+    /**
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @return the requested page size, DEFAULT_PAGE_SIZE if absent, or null if it is not between 1 and MAX_PAGE_SIZE.
+     */
+    private Integer pageLimit(Context ctx) {
+        String limit = ctx.queryParam("limit");
+        if (limit == null) return DEFAULT_PAGE_SIZE;
+        try {
+            int value = Integer.parseInt(limit);
+            return value >= 1 && value <= MAX_PAGE_SIZE ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @return true if the client asked for the full listing to be streamed.
+     */
+    private boolean isStreamed(Context ctx) {
+        return "true".equalsIgnoreCase(ctx.queryParam("stream"));
+    }
+
+    /**
+     * Write a JSON array of messages directly to the response output stream as rows arrive from the database, so the
+     * heap used does not grow with the number of messages.
+     *
+     * If the query fails part-way, the array is never closed and the connection is aborted, so the client sees a
+     * broken response rather than a well-formed but truncated array with status 200.
+     *
+     * Under a conditional GET the array is written past Javalin's output stream, like sendJson, so it is never
+     * compressed on the fly under the identity ETag. A client that accepts gzip gets it compressed here instead,
+     * under the gzip variant's ETag.
+     *
+     * @param ctx Javalin context object contains info about HTTP request and response.
+     * @param source runs the query, passing each row to the given handler.
+     * @throws IOException if the response could not be written.
+     */
+    private void streamJsonArray(Context ctx, RowSource source) throws IOException {
+        ctx.contentType(ContentType.APPLICATION_JSON).status(200);
+        OutputStream out = ctx.outputStream();
+        String etag = ctx.attribute(RESPONSE_ETAG);
+        if (etag != null) {
+            out = ctx.res().getOutputStream();
+            if (acceptsGzip(ctx.header(Header.ACCEPT_ENCODING))) {
+                ctx.header(Header.ETAG, gzipETag(etag)).header(Header.CONTENT_ENCODING, "gzip");
+                out = new GZIPOutputStream(out, 8192);
+            }
+        }
+        JsonGenerator generator = JsonUtil.MAPPER.getFactory().createGenerator(out)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        try {
+            generator.writeStartArray();
+            source.forEachRow((message_id, posted_by, message_text, time_posted_epoch) -> {
+                generator.writeStartObject();
+                generator.writeNumberField("message_id", message_id);
+                generator.writeNumberField("posted_by", posted_by);
+                generator.writeStringField("message_text", message_text);
+                generator.writeNumberField("time_posted_epoch", time_posted_epoch);
+                generator.writeEndObject();
+            });
+            generator.writeEndArray();
+            generator.close();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Aborting streamed response to {} {}", ctx.method(), ctx.path(), e);
+            Request.getBaseRequest(ctx.req()).getHttpChannel().abort(e);
+        }
+    }
+
+    /**
+     * A streaming query bound to its parameters, waiting for a row handler.
+     */
+    @FunctionalInterface
+    private interface RowSource {
+        void forEachRow(MessageRowHandler handler) throws IOException;
     }
-}
\ No newline at end of file
+}
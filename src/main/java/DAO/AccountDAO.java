@@ -1,6 +1,10 @@
 package DAO;
 
+import Util.BloomFilter;
+import Util.ConcurrentBitSet;
 import Util.ConnectionUtil;
+import Util.LatencyHistogram;
+import Util.Metrics;
 import Model.Account;
 import java.sql.*;
 
@@ -11,31 +15,104 @@ import java.sql.*;
 public class AccountDAO {
 
     /**
-     * Add an account record into the database which matches the values contained in the account object.
+     * Call timings exported by /metrics, covering connection borrow, execution and result mapping.
+     */
+    private static final LatencyHistogram LOAD_ACCOUNT_INDEX_TIMER = Metrics.daoTimer("AccountDAO", "loadAccountIndex");
+    private static final LatencyHistogram INSERT_ACCOUNT_TIMER = Metrics.daoTimer("AccountDAO", "insertAccount");
+    private static final LatencyHistogram GET_ACCOUNT_BY_ID_TIMER = Metrics.daoTimer("AccountDAO", "getAccountById");
+    private static final LatencyHistogram GET_ACCOUNT_BY_USERNAME_TIMER =
+            Metrics.daoTimer("AccountDAO", "getAccountByUsername");
+    private static final LatencyHistogram UPDATE_PASSWORD_TIMER = Metrics.daoTimer("AccountDAO", "updatePassword");
+
+    /**
+     * IDs of every account in the database, loaded by loadAccountIndex() and kept current by insertAccount(), so that
+     * account existence can be checked without a query.
+     */
+    private final ConcurrentBitSet accountIds = new ConcurrentBitSet();
+    /**
+     * Usernames of every account, loaded and kept current the same way, so that a free username can usually be
+     * recognised without a query. Sized by -Daccount.usernameFilterSize (expected accounts) at a 1% false positive
+     * rate.
+     */
+    private final BloomFilter usernames = new BloomFilter(
+            Integer.getInteger("account.usernameFilterSize", 1000000), 0.01);
+
+    /**
+     * Load the ID and username of every existing account into the in-memory account indexes.
+     */
+    public void loadAccountIndex() {
+        String sql = "SELECT account_id, username FROM account;";
+        LatencyHistogram.Timer timer = LOAD_ACCOUNT_INDEX_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                accountIds.add(rs.getInt(1));
+                String username = rs.getString(2);
+                if (username != null) usernames.put(username);
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Check the in-memory account ID index; no database access.
+     *
+     * @param id an account ID.
+     * @return true if an account with this ID has been loaded or inserted.
+     */
+    public boolean accountExists(int id) {
+        return accountIds.contains(id);
+    }
+
+    /**
+     * Check the in-memory username filter; no database access.
+     *
+     * @param username an account username.
+     * @return false if no account has this username, true if one probably does.
+     */
+    public boolean usernameMightExist(String username) {
+        return usernames.mightContain(username);
+    }
+
+    /**
+     * Add an account record into the database which matches the values contained in the account object. A taken
+     * username is caught by the UNIQUE constraint in the same statement, so no prior lookup is needed.
      *
      * @param account an object modelling an Account. The account object does not contain an account ID.
+     * @return the inserted account including its account ID, or null if the username is taken or the insert failed.
      */
     public Account insertAccount(Account account) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "INSERT INTO account (username, password) VALUES (?, ?);";
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-
+        String sql = "INSERT INTO account (username, password) VALUES (?, ?);";
+        LatencyHistogram.Timer timer = INSERT_ACCOUNT_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, account.getUsername());
             ps.setString(2, account.getPassword());
 
             ps.executeUpdate();
-            ResultSet rs = ps.getGeneratedKeys();
-            if (rs.next()) {
-                int generated_account_id = (int) rs.getLong(1);
-                return new Account(
-                    generated_account_id, 
-                    account.getUsername(), 
-                    account.getPassword() 
-                );
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    int generated_account_id = (int) rs.getLong(1);
+                    accountIds.add(generated_account_id);
+                    usernames.put(account.getUsername());
+                    return new Account(
+                        generated_account_id,
+                        account.getUsername(),
+                        account.getPassword()
+                    );
+                }
             }
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Username taken, possibly by a concurrent registration. Record it so the next attempt checks first.
+            usernames.put(account.getUsername());
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
         return null;
     }
@@ -47,23 +124,21 @@ public class AccountDAO {
      * @return the account object with values retrieved from id, null if id not found.
      */
     public Account getAccountById(int id) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "SELECT * FROM account WHERE account_id = ?;";
-            PreparedStatement ps = connection.prepareStatement(sql);
+        String sql = "SELECT * FROM account WHERE account_id = ?;";
+        LatencyHistogram.Timer timer = GET_ACCOUNT_BY_ID_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, id);
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Account account = new Account(
-                    rs.getInt("account_id"),
-                    rs.getString("username"),
-                    rs.getString("password")
-                );
-                return account;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapAccount(rs);
+                }
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
 
         return null;
@@ -76,49 +151,59 @@ public class AccountDAO {
      * @return the account object with values retrieved from username, null if username not found.
      */
     public Account getAccountByUsername(String username) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "SELECT * FROM account WHERE account.username = ?;";
-            PreparedStatement ps = connection.prepareStatement(sql);
+        String sql = "SELECT * FROM account WHERE account.username = ?;";
+        LatencyHistogram.Timer timer = GET_ACCOUNT_BY_USERNAME_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setString(1, username);
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Account account = new Account(
-                    rs.getInt("account_id"),
-                    rs.getString("username"),
-                    rs.getString("password")
-                );
-                return account;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapAccount(rs);
+                }
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
 
         return null;
     }
 
-    public Account getAccountByUsernameAndPassword(Account account) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "SELECT * FROM account WHERE username = ? AND password = ?;";
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setString(1, account.getUsername());
-            ps.setString(2, account.getPassword());
+    /**
+     * Replace the stored password of an account.
+     *
+     * @param id an account ID.
+     * @param password the new stored password, normally a hash.
+     * @return true if the account was found and updated.
+     */
+    public boolean updatePassword(int id, String password) {
+        String sql = "UPDATE account SET password = ? WHERE account_id = ?;";
+        LatencyHistogram.Timer timer = UPDATE_PASSWORD_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, password);
+            ps.setInt(2, id);
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Account existingAccount = new Account(
-                    rs.getInt("account_id"),
-                    rs.getString("username"),
-                    rs.getString("password")
-                );
-                return existingAccount;
-            }
+            return ps.executeUpdate() > 0;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
-        return null;
+        return false;
+    }
+
+    /**
+     * Build an Account from the current row of a result set over the account table.
+     */
+    private Account mapAccount(ResultSet rs) throws SQLException {
+        return new Account(
+            rs.getInt("account_id"),
+            rs.getString("username"),
+            rs.getString("password")
+        );
     }
 
 }
@@ -0,0 +1,125 @@
+package DAO;
+
+import Util.ConnectionUtil;
+import Util.LatencyHistogram;
+import Util.Metrics;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Mediates the transformation of data between follow relationships and rows in the follow table.
+ */
+public class FollowDAO {
+
+    /**
+     * Call timings exported by /metrics, covering connection borrow, execution and result mapping.
+     */
+    private static final LatencyHistogram INSERT_FOLLOW_TIMER = Metrics.daoTimer("FollowDAO", "insertFollow");
+    private static final LatencyHistogram DELETE_FOLLOW_TIMER = Metrics.daoTimer("FollowDAO", "deleteFollow");
+    private static final LatencyHistogram LOAD_FOLLOWS_TIMER = Metrics.daoTimer("FollowDAO", "loadFollows");
+    private static final LatencyHistogram GET_RECENT_FEED_ENTRIES_TIMER =
+            Metrics.daoTimer("FollowDAO", "getRecentFeedEntries");
+
+    /**
+     * Record that one account follows another.
+     *
+     * @param follower_id the following account.
+     * @param followee_id the followed account.
+     * @return true if the relationship was added, false if it already existed or either account does not exist.
+     */
+    public boolean insertFollow(int follower_id, int followee_id) {
+        String sql = "INSERT INTO follow (follower_id, followee_id) VALUES (?, ?);";
+        LatencyHistogram.Timer timer = INSERT_FOLLOW_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, follower_id);
+            ps.setInt(2, followee_id);
+            return ps.executeUpdate() > 0;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+        return false;
+    }
+
+    /**
+     * Remove a follow relationship.
+     *
+     * @param follower_id the following account.
+     * @param followee_id the followed account.
+     * @return true if the relationship existed and was removed.
+     */
+    public boolean deleteFollow(int follower_id, int followee_id) {
+        String sql = "DELETE FROM follow WHERE follower_id = ? AND followee_id = ?;";
+        LatencyHistogram.Timer timer = DELETE_FOLLOW_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, follower_id);
+            ps.setInt(2, followee_id);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+        return false;
+    }
+
+    /**
+     * Pass every follow relationship to a handler, one row at a time.
+     *
+     * @param handler receives the follower and followee IDs of each relationship.
+     */
+    public void loadFollows(BiConsumer<Integer, Integer> handler) {
+        String sql = "SELECT follower_id, followee_id FROM follow;";
+        LatencyHistogram.Timer timer = LOAD_FOLLOWS_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                handler.accept(rs.getInt(1), rs.getInt(2));
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Retrieve the newest messages posted by the accounts a given account follows, used to build a home timeline
+     * that is not yet in memory.
+     *
+     * @param follower_id the following account.
+     * @param limit maximum number of messages to return.
+     * @return {message_id, posted_by} pairs, newest first.
+     */
+    public List<int[]> getRecentFeedEntries(int follower_id, int limit) {
+        List<int[]> entries = new ArrayList<>();
+        String sql = "SELECT m.message_id, m.posted_by FROM follow f "
+                + "JOIN message m ON m.posted_by = f.followee_id "
+                + "WHERE f.follower_id = ? ORDER BY m.message_id DESC LIMIT ?;";
+        LatencyHistogram.Timer timer = GET_RECENT_FEED_ENTRIES_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, follower_id);
+            ps.setInt(2, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new int[] {rs.getInt(1), rs.getInt(2)});
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,144 @@
+package DAO;
+
+import Model.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit pipeline for single-message inserts. Callers enqueue a message and get a future; one writer thread
+ * drains the queue and inserts whatever has accumulated as a single JDBC batch in one transaction, so many
+ * concurrent posts share one commit instead of paying for one each.
+ *
+ * A batch is written as soon as it reaches maxBatchSize, or once maxLingerMicros has passed since its first
+ * message was taken, whichever comes first. The linger time is therefore the most a caller waits for company.
+ */
+public class GroupCommitMessageWriter {
+
+    private final MessageDAO messageDAO;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final BlockingQueue<PendingInsert> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * @param messageDAO the DAO used to write batches.
+     * @param maxBatchSize the most messages written in one transaction.
+     * @param maxLingerMicros how long the writer waits for a batch to fill after taking its first message.
+     * @param queueCapacity how many messages may be waiting; further callers insert directly instead.
+     */
+    public GroupCommitMessageWriter(MessageDAO messageDAO, int maxBatchSize, long maxLingerMicros, int queueCapacity) {
+        this.messageDAO = messageDAO;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxLingerNanos = TimeUnit.MICROSECONDS.toNanos(maxLingerMicros);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        writer = new Thread(this::run, "group-commit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a message for the next group commit.
+     *
+     * @param message an object modelling a Message. The message object does not contain a message ID.
+     * @return a future completed with the inserted message, including its message_id, with null if the insert
+     *         failed, or exceptionally if the database could not be reached.
+     */
+    public CompletableFuture<Message> submit(Message message) {
+        PendingInsert pending = new PendingInsert(message);
+        if (!running || !queue.offer(pending) || (!running && queue.remove(pending))) {
+            // Shut down or saturated: don't make the caller wait behind a full queue.
+            pending.future.complete(messageDAO.insertMessage(message));
+        }
+        return pending.future;
+    }
+
+    /**
+     * @return the number of messages waiting to be written.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting work, write everything already queued and stop the writer thread.
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<PendingInsert> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                // Poll rather than take so a shutdown is noticed without interrupting a thread that may be in H2 I/O.
+                PendingInsert first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            write(batch);
+            batch.clear();
+        }
+        queue.drainTo(batch);
+        write(batch);
+    }
+
+    /**
+     * Insert a batch in one transaction. If the batch fails as a whole, each message is retried on its own so one
+     * bad row does not fail its neighbours. A runtime exception, such as the pool timing out, fails every future not
+     * yet completed instead of ending the writer thread and leaving its callers waiting.
+     */
+    private void write(List<PendingInsert> batch) {
+        if (batch.isEmpty()) return;
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (PendingInsert pending : batch) messages.add(pending.message);
+
+        try {
+            List<Message> inserted = messageDAO.insertMessages(messages);
+            for (int i = 0; i < batch.size(); i++) {
+                PendingInsert pending = batch.get(i);
+                pending.future.complete(inserted != null
+                    ? inserted.get(i)
+                    : messageDAO.insertMessage(pending.message));
+            }
+        } catch (RuntimeException e) {
+            for (PendingInsert pending : batch) pending.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * A queued message and the future its caller is waiting on.
+     */
+    private static class PendingInsert {
+        final Message message;
+        final CompletableFuture<Message> future = new CompletableFuture<>();
+
+        PendingInsert(Message message) {
+            this.message = message;
+        }
+    }
+}
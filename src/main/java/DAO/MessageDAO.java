@@ -1,7 +1,10 @@
 package DAO;
 
 import Util.ConnectionUtil;
+import Util.LatencyHistogram;
+import Util.Metrics;
 import Model.Message;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,63 +16,133 @@ import java.util.List;
  */
 public class MessageDAO {
 
+    /**
+     * Call timings exported by /metrics, covering connection borrow, execution and result mapping.
+     */
+    private static final LatencyHistogram INSERT_MESSAGE_TIMER = Metrics.daoTimer("MessageDAO", "insertMessage");
+    private static final LatencyHistogram INSERT_MESSAGES_TIMER = Metrics.daoTimer("MessageDAO", "insertMessages");
+    private static final LatencyHistogram GET_ALL_MESSAGES_TIMER = Metrics.daoTimer("MessageDAO", "getAllMessages");
+    private static final LatencyHistogram GET_MESSAGE_BY_ID_TIMER = Metrics.daoTimer("MessageDAO", "getMessageById");
+    private static final LatencyHistogram DELETE_MESSAGE_RETURNING_TIMER =
+            Metrics.daoTimer("MessageDAO", "deleteMessageReturning");
+    private static final LatencyHistogram UPDATE_MESSAGE_RETURNING_TIMER =
+            Metrics.daoTimer("MessageDAO", "updateMessageReturning");
+    private static final LatencyHistogram GET_ALL_MESSAGES_BY_ACCOUNT_ID_TIMER =
+            Metrics.daoTimer("MessageDAO", "getAllMessagesByAccountId");
+    private static final LatencyHistogram GET_MESSAGES_AFTER_TIMER = Metrics.daoTimer("MessageDAO", "getMessagesAfter");
+    private static final LatencyHistogram GET_MESSAGES_BY_ACCOUNT_ID_AFTER_TIMER =
+            Metrics.daoTimer("MessageDAO", "getMessagesByAccountIdAfter");
+    private static final LatencyHistogram STREAM_ALL_MESSAGES_TIMER =
+            Metrics.daoTimer("MessageDAO", "streamAllMessages");
+    private static final LatencyHistogram STREAM_ALL_MESSAGES_BY_ACCOUNT_ID_TIMER =
+            Metrics.daoTimer("MessageDAO", "streamAllMessagesByAccountId");
+    private static final LatencyHistogram GET_MESSAGES_BY_IDS_TIMER =
+            Metrics.daoTimer("MessageDAO", "getMessagesByIds");
+    private static final LatencyHistogram GET_RECENT_MESSAGE_IDS_BY_ACCOUNT_ID_TIMER =
+            Metrics.daoTimer("MessageDAO", "getRecentMessageIdsByAccountId");
+
+    /**
+     * Rows fetched per round trip when streaming a listing.
+     */
+    private static final int STREAM_FETCH_SIZE = 500;
+
     /**
      * Add a message record into the database which matches the values contained in the message object.
      *
      * @param message an object modelling a Message. The message object does not contain a message ID.
      */
     public Message insertMessage(Message message) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?);";
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-
+        String sql = "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?);";
+        LatencyHistogram.Timer timer = INSERT_MESSAGE_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, message.getPosted_by());
             ps.setString(2, message.getMessage_text());
             ps.setLong(3, message.getTime_posted_epoch());
 
             ps.executeUpdate();
-            ResultSet rs = ps.getGeneratedKeys();
-            if (rs.next()) {
-                int generated_message_id = (int) rs.getLong(1);
-                return new Message(
-                    generated_message_id, 
-                    message.getPosted_by(), 
-                    message.getMessage_text(), 
-                    message.getTime_posted_epoch()
-                );
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    int generated_message_id = (int) rs.getLong(1);
+                    return new Message(
+                        generated_message_id,
+                        message.getPosted_by(),
+                        message.getMessage_text(),
+                        message.getTime_posted_epoch()
+                    );
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+        return null;
+    }
+
+    /**
+     * Add several message records in a single transaction, sending all rows to the database as one JDBC batch.
+     * Either every message is inserted or none is.
+     *
+     * @param messages objects modelling Messages. The message objects do not contain message IDs.
+     * @return the inserted messages with their generated message IDs, in the same order, or null if the batch failed.
+     */
+    public List<Message> insertMessages(List<Message> messages) {
+        if (messages.isEmpty()) return new ArrayList<>();
+        String sql = "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?);";
+        LatencyHistogram.Timer timer = INSERT_MESSAGES_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            connection.setAutoCommit(false);
+            for (Message message : messages) {
+                ps.setInt(1, message.getPosted_by());
+                ps.setString(2, message.getMessage_text());
+                ps.setLong(3, message.getTime_posted_epoch());
+                ps.addBatch();
             }
+            ps.executeBatch();
+
+            List<Message> inserted = new ArrayList<>(messages.size());
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (Message message : messages) {
+                    if (!rs.next()) throw new SQLException("Missing generated key for batched message");
+                    inserted.add(new Message(
+                        (int) rs.getLong(1),
+                        message.getPosted_by(),
+                        message.getMessage_text(),
+                        message.getTime_posted_epoch()
+                    ));
+                }
+            }
+            connection.commit();
+            return inserted;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
         return null;
     }
 
     /**
      * Retrieve all messages.
-     * 
+     *
      * @return a list of all Messages in the message table.
      */
     public List<Message> getAllMessages() {
-        Connection connection = ConnectionUtil.getConnection();
         List<Message> messages = new ArrayList<>();
-        try {
-            String sql = "SELECT * FROM message;";
-            PreparedStatement ps = connection.prepareStatement(sql);
-            
-            ResultSet rs = ps.executeQuery();
+        String sql = "SELECT * FROM message;";
+        LatencyHistogram.Timer timer = GET_ALL_MESSAGES_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
-                Message message = new Message(
-                    rs.getInt("message_id"),
-                    rs.getInt("posted_by"),
-                    rs.getString("message_text"),
-                    rs.getLong("time_posted_epoch")
-                );
-                messages.add(message);
+                messages.add(mapMessage(rs));
             }
-
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
         return messages;
     }
@@ -81,96 +154,311 @@ public class MessageDAO {
      * @return the message object with values retrieved from id, null if id not found.
      */
     public Message getMessageById(int id) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "SELECT * FROM message WHERE message_id = ?;";
-            PreparedStatement ps = connection.prepareStatement(sql);
+        String sql = "SELECT * FROM message WHERE message_id = ?;";
+        LatencyHistogram.Timer timer = GET_MESSAGE_BY_ID_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, id);
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Message message = new Message(
-                        rs.getInt("message_id"), 
-                        rs.getInt("posted_by"), 
-                        rs.getString("message_text"),
-                        rs.getLong("time_posted_epoch")
-                );
-                return message;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapMessage(rs);
+                }
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
         return null;
     }
 
     /**
-     * Delete a specific message using its message ID.
-     * 
+     * Delete a specific message using its message ID, returning the deleted row in the same statement through H2's
+     * OLD TABLE delta table, so no prior lookup is needed.
+     *
      * @param id ID of the message to be deleted.
-     * @return the number of messages deleted.
+     * @return the message as it was before deletion, null if id not found.
      */
-    public int deleteMessage(int id) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "DELETE FROM message WHERE message_id = ?;";
-            PreparedStatement ps = connection.prepareStatement(sql);
+    public Message deleteMessageReturning(int id) {
+        String sql = "SELECT * FROM OLD TABLE (DELETE FROM message WHERE message_id = ?);";
+        LatencyHistogram.Timer timer = DELETE_MESSAGE_RETURNING_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, id);
-            return ps.executeUpdate();
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapMessage(rs);
+                }
+            }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
-        return 0;
+        return null;
     }
 
     /**
-     * Update the message identified by the message id to the values contained in the message object.
-     * 
+     * Update the text of the message identified by the message id, returning the updated row in the same statement
+     * through H2's FINAL TABLE delta table, so neither a prior existence check nor a re-read is needed.
+     *
      * @param id a message ID.
-     * @param message a message object.
-     * 
-     */
-    public void updateMessage(int id, Message message) {
-        Connection connection = ConnectionUtil.getConnection();
-        try {
-            String sql = "UPDATE message SET message_text = ? WHERE message_id = ?;";
-            PreparedStatement ps = connection.prepareStatement(sql);
+     * @param message a message object holding the new message_text.
+     * @return the updated message, null if id not found.
+     */
+    public Message updateMessageReturning(int id, Message message) {
+        String sql = "SELECT * FROM FINAL TABLE (UPDATE message SET message_text = ? WHERE message_id = ?);";
+        LatencyHistogram.Timer timer = UPDATE_MESSAGE_RETURNING_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setString(1, message.getMessage_text());
             ps.setInt(2, id);
-            ps.executeUpdate();
 
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapMessage(rs);
+                }
+            }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
+        return null;
     }
 
     /**
      * Retrieve all messages from a specified account.
-     * 
+     *
      * @param account_id ID of an account
      * @return all messages posted by account_id
      */
     public List<Message> getAllMessagesByAccountId(int account_id) {
-        Connection connection = ConnectionUtil.getConnection();
         List<Message> messages = new ArrayList<>();
-        try {
-            String sql = "SELECT * FROM message WHERE posted_by = ?;";
-            PreparedStatement ps = connection.prepareStatement(sql);
+        String sql = "SELECT * FROM message WHERE posted_by = ?;";
+        LatencyHistogram.Timer timer = GET_ALL_MESSAGES_BY_ACCOUNT_ID_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
             ps.setInt(1, account_id);
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Message message = new Message(
-                    rs.getInt("message_id"),
-                    rs.getInt("posted_by"),
-                    rs.getString("message_text"),
-                    rs.getLong("time_posted_epoch")
-                );
-                messages.add(message);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
             }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
         }
         return messages;
     }
 
+    /**
+     * Retrieve one page of messages in message_id order, starting after a given message ID. The query seeks on the
+     * primary key, so its cost depends on the page size rather than on how far into the table the page is.
+     *
+     * @param after_id only messages with a larger message_id are returned; 0 starts from the beginning.
+     * @param limit maximum number of messages to return.
+     * @return up to limit messages with message_id greater than after_id.
+     */
+    public List<Message> getMessagesAfter(int after_id, int limit) {
+        List<Message> messages = new ArrayList<>();
+        String sql = "SELECT * FROM message WHERE message_id > ? ORDER BY message_id LIMIT ?;";
+        LatencyHistogram.Timer timer = GET_MESSAGES_AFTER_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, after_id);
+            ps.setInt(2, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+        return messages;
+    }
+
+    /**
+     * Retrieve one page of messages from a specified account in message_id order, starting after a given message
+     * ID. Served by the (posted_by, message_id) index.
+     *
+     * @param account_id ID of an account
+     * @param after_id only messages with a larger message_id are returned; 0 starts from the beginning.
+     * @param limit maximum number of messages to return.
+     * @return up to limit messages posted by account_id with message_id greater than after_id.
+     */
+    public List<Message> getMessagesByAccountIdAfter(int account_id, int after_id, int limit) {
+        List<Message> messages = new ArrayList<>();
+        String sql = "SELECT * FROM message WHERE posted_by = ? AND message_id > ? ORDER BY message_id LIMIT ?;";
+        LatencyHistogram.Timer timer = GET_MESSAGES_BY_ACCOUNT_ID_AFTER_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, account_id);
+            ps.setInt(2, after_id);
+            ps.setInt(3, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+        return messages;
+    }
+
+    /**
+     * Retrieve several messages by ID in one query, binding the IDs as a single array parameter so the statement
+     * text is the same for any number of IDs.
+     *
+     * @param ids message IDs.
+     * @return the messages found, in no particular order; IDs not found are skipped.
+     */
+    public List<Message> getMessagesByIds(List<Integer> ids) {
+        List<Message> messages = new ArrayList<>();
+        if (ids.isEmpty()) return messages;
+        String sql = "SELECT * FROM message WHERE message_id = ANY(?);";
+        LatencyHistogram.Timer timer = GET_MESSAGES_BY_IDS_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setObject(1, ids.toArray(new Integer[0]));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+        return messages;
+    }
+
+    /**
+     * Retrieve the IDs of the newest messages from a specified account, walking the (posted_by, message_id) index
+     * backwards.
+     *
+     * @param account_id ID of an account
+     * @param limit maximum number of IDs to return.
+     * @return up to limit message IDs posted by account_id, newest first.
+     */
+    public List<Integer> getRecentMessageIdsByAccountId(int account_id, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        String sql = "SELECT message_id FROM message WHERE posted_by = ? ORDER BY message_id DESC LIMIT ?;";
+        LatencyHistogram.Timer timer = GET_RECENT_MESSAGE_IDS_BY_ACCOUNT_ID_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, account_id);
+            ps.setInt(2, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            timer.stop();
+        }
+        return ids;
+    }
+
+    /**
+     * Stream all messages to a row handler in message_id order without holding them in memory.
+     *
+     * @param handler receives each message row as it is read.
+     * @throws IOException if the handler fails to write a row.
+     * @throws IllegalStateException if the query fails, possibly after some rows were handled. Unlike the other
+     *         queries the failure is not swallowed, since the rows already handed out cannot be taken back.
+     */
+    public void streamAllMessages(MessageRowHandler handler) throws IOException {
+        String sql = "SELECT * FROM message ORDER BY message_id;";
+        LatencyHistogram.Timer timer = STREAM_ALL_MESSAGES_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            streamRows(connection, ps, handler);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Streaming messages failed: " + e.getMessage(), e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Stream all messages from a specified account to a row handler in message_id order without holding them in
+     * memory.
+     *
+     * @param account_id ID of an account
+     * @param handler receives each message row as it is read.
+     * @throws IOException if the handler fails to write a row.
+     * @throws IllegalStateException if the query fails, possibly after some rows were handled. Unlike the other
+     *         queries the failure is not swallowed, since the rows already handed out cannot be taken back.
+     */
+    public void streamAllMessagesByAccountId(int account_id, MessageRowHandler handler) throws IOException {
+        String sql = "SELECT * FROM message WHERE posted_by = ? ORDER BY message_id;";
+        LatencyHistogram.Timer timer = STREAM_ALL_MESSAGES_BY_ACCOUNT_ID_TIMER.time();
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, account_id);
+            streamRows(connection, ps, handler);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Streaming messages failed: " + e.getMessage(), e);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Run a message query with lazy execution switched on for the session, so H2 produces rows as they are fetched
+     * instead of materializing the whole result first. The setting is restored before the connection goes back to
+     * the pool.
+     */
+    private void streamRows(Connection connection, PreparedStatement ps, MessageRowHandler handler)
+            throws SQLException, IOException {
+        try (Statement session = connection.createStatement()) {
+            session.execute("SET LAZY_QUERY_EXECUTION TRUE");
+            try {
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        handler.handle(
+                            rs.getInt("message_id"),
+                            rs.getInt("posted_by"),
+                            rs.getString("message_text"),
+                            rs.getLong("time_posted_epoch")
+                        );
+                    }
+                }
+            } finally {
+                session.execute("SET LAZY_QUERY_EXECUTION FALSE");
+            }
+        }
+    }
+
+    /**
+     * Build a Message from the current row of a result set over the message table.
+     */
+    private Message mapMessage(ResultSet rs) throws SQLException {
+        return new Message(
+            rs.getInt("message_id"),
+            rs.getInt("posted_by"),
+            rs.getString("message_text"),
+            rs.getLong("time_posted_epoch")
+        );
+    }
+
 }
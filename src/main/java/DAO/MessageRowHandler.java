@@ -0,0 +1,22 @@
+package DAO;
+
+import java.io.IOException;
+
+/**
+ * Receives message rows one at a time as they are read from the database, so a listing can be written out without
+ * first collecting every row into Message objects.
+ */
+@FunctionalInterface
+public interface MessageRowHandler {
+
+    /**
+     * Handle the values of one message row.
+     *
+     * @param message_id the message ID.
+     * @param posted_by the ID of the account that posted the message.
+     * @param message_text the message text.
+     * @param time_posted_epoch the time the message was posted, in epoch seconds.
+     * @throws IOException if the row could not be written out.
+     */
+    void handle(int message_id, int posted_by, String message_text, long time_posted_epoch) throws IOException;
+}
@@ -0,0 +1,74 @@
+package Model;
+
+import java.util.Objects;
+
+/**
+ * This is a class that models the outcome of one item in a batch message creation request.
+ */
+public class MessageBatchResult {
+    /**
+     * The HTTP-style status of this item: 200 if the message was created, 400 if it failed validation, 500 if the
+     * batch could not be written.
+     */
+    public int status;
+    /**
+     * The created message, including its generated message_id, or null if the item was not created.
+     */
+    public Message message;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public MessageBatchResult() {
+    }
+    /**
+     * @param status
+     * @param message
+     */
+    public MessageBatchResult(int status, Message message) {
+        this.status = status;
+        this.message = message;
+    }
+    /**
+     * @return status
+     */
+    public int getStatus() {
+        return status;
+    }
+    /**
+     * @param status
+     */
+    public void setStatus(int status) {
+        this.status = status;
+    }
+    /**
+     * @return message
+     */
+    public Message getMessage() {
+        return message;
+    }
+    /**
+     * @param message
+     */
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MessageBatchResult that = (MessageBatchResult) o;
+        return status == that.status && Objects.equals(message, that.message);
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hash(status, message);
+    }
+    @Override
+    public String toString() {
+        return "MessageBatchResult{" +
+                "status=" + status +
+                ", message=" + message +
+                '}';
+    }
+}
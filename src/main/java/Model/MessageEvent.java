@@ -0,0 +1,73 @@
+package Model;
+
+import java.util.Objects;
+
+/**
+ * This is a class that models a change to a message, as pushed to live subscribers.
+ */
+public class MessageEvent {
+    /**
+     * What happened: "created", "updated" or "deleted". A subscriber's first event is "subscribed", with no message.
+     */
+    public String type;
+    /**
+     * The message after the change, or as it was before deletion.
+     */
+    public Message message;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public MessageEvent() {
+    }
+    /**
+     * @param type
+     * @param message
+     */
+    public MessageEvent(String type, Message message) {
+        this.type = type;
+        this.message = message;
+    }
+    /**
+     * @return type
+     */
+    public String getType() {
+        return type;
+    }
+    /**
+     * @param type
+     */
+    public void setType(String type) {
+        this.type = type;
+    }
+    /**
+     * @return message
+     */
+    public Message getMessage() {
+        return message;
+    }
+    /**
+     * @param message
+     */
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MessageEvent that = (MessageEvent) o;
+        return Objects.equals(type, that.type) && Objects.equals(message, that.message);
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, message);
+    }
+    @Override
+    public String toString() {
+        return "MessageEvent{" +
+                "type='" + type + '\'' +
+                ", message=" + message +
+                '}';
+    }
+}
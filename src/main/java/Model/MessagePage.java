@@ -0,0 +1,75 @@
+package Model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This is a class that models one page of messages returned by a paginated listing.
+ */
+public class MessagePage {
+    /**
+     * The messages on this page, in ascending message_id order.
+     */
+    public List<Message> items;
+    /**
+     * An opaque cursor to pass back as the cursor query parameter to fetch the following page, or null if this is
+     * the last page.
+     */
+    public String next;
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public MessagePage() {
+    }
+    /**
+     * @param items
+     * @param next
+     */
+    public MessagePage(List<Message> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+    /**
+     * @return items
+     */
+    public List<Message> getItems() {
+        return items;
+    }
+    /**
+     * @param items
+     */
+    public void setItems(List<Message> items) {
+        this.items = items;
+    }
+    /**
+     * @return next
+     */
+    public String getNext() {
+        return next;
+    }
+    /**
+     * @param next
+     */
+    public void setNext(String next) {
+        this.next = next;
+    }
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MessagePage page = (MessagePage) o;
+        return Objects.equals(items, page.items) && Objects.equals(next, page.next);
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hash(items, next);
+    }
+    @Override
+    public String toString() {
+        return "MessagePage{" +
+                "items=" + items +
+                ", next='" + next + '\'' +
+                '}';
+    }
+}
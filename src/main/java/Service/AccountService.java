@@ -2,6 +2,8 @@ package Service;
 
 import Model.Account;
 import DAO.AccountDAO;
+import Util.PasswordHasher;
+import Util.SessionStore;
 
 /**
  * AccountService class containing business logic between the web layer (controller) and
@@ -9,16 +11,35 @@ import DAO.AccountDAO;
  */
 public class AccountService {
 
+    /**
+     * PBKDF2 iterations for new password hashes (-Dpassword.pbkdf2Iterations). Around 60-90ms per hash on one core,
+     * which bounds /register and /login throughput per core; measure it with AccountServiceBenchmark.
+     */
+    private static final int PBKDF2_ITERATIONS = Integer.getInteger("password.pbkdf2Iterations", 210000);
+    /**
+     * How long a login session stays valid, in seconds (-Dsession.ttlSeconds).
+     */
+    private static final long SESSION_TTL_SECONDS = Long.getLong("session.ttlSeconds", 3600);
+
     AccountDAO accountDAO;
+    private final PasswordHasher passwordHasher = new PasswordHasher(PBKDF2_ITERATIONS);
+    private final SessionStore sessionStore = new SessionStore(SESSION_TTL_SECONDS * 1000);
+
     /**
      * No-args constructor for a accountService instantiates a plain accountDAO.
      */
     public AccountService(){
         accountDAO = new AccountDAO();
+        accountDAO.loadAccountIndex();
     }
 
     /**
-     * Add a new account to the database.
+     * Add a new account to the database. Only a salted hash of the password is stored; hashing is slow, so call
+     * this off the request threads.
+     *
+     * A username the in-memory filter has never seen is free, so the account is inserted in one statement and the
+     * UNIQUE constraint settles any race with a concurrent registration. Only when the filter says the name is
+     * probably taken is it looked up first, to avoid hashing a password for an insert that would fail.
      *
      * @param account an object representing a new Account.
      * @return the newly registered account if the add operation was successful, including the account_id. 
@@ -26,8 +47,12 @@ public class AccountService {
     public Account addAccount(Account account) {
         if (account.getUsername().length() < 1) return null;
         if (account.getPassword().length() < 4) return null;
-        if (accountDAO.getAccountByUsername(account.getUsername()) != null) return null;
-        return accountDAO.insertAccount(account);
+        if (accountDAO.usernameMightExist(account.getUsername())
+                && accountDAO.getAccountByUsername(account.getUsername()) != null) return null;
+        Account inserted = accountDAO.insertAccount(
+            new Account(account.getUsername(), passwordHasher.hash(account.getPassword())));
+        if (inserted == null) return null;
+        return new Account(inserted.getAccount_id(), inserted.getUsername(), account.getPassword());
     }
 
     /**
@@ -41,12 +66,64 @@ public class AccountService {
     }
 
     /**
-     * Validate login with account retrieval by username and password.
+     * Check whether an account exists using the in-memory account ID index, without touching the database.
+     *
+     * @param account_id the ID of the account to check.
+     * @return true if the account exists.
+     */
+    public boolean accountExists(int account_id) {
+        return accountDAO.accountExists(account_id);
+    }
+
+    /**
+     * Validate login by retrieving the account by username and verifying the password against its stored hash.
+     * A password still stored in plaintext, or hashed with fewer iterations than now configured, is rehashed on a
+     * successful login. Hashing is slow, so call this off the request threads.
      * 
      * @param account an object representing an Account login attempt.
-     * @return the existing account if the query is successful, including the account_id.
+     * @return the existing account if the password matches, including the account_id.
      */
     public Account validLogin(Account account) {
-        return accountDAO.getAccountByUsernameAndPassword(account);
+        if (account.getUsername() == null || account.getPassword() == null) return null;
+        Account existing = accountDAO.getAccountByUsername(account.getUsername());
+        if (existing == null || !passwordHasher.verify(account.getPassword(), existing.getPassword())) return null;
+        if (passwordHasher.needsRehash(existing.getPassword())) {
+            accountDAO.updatePassword(existing.getAccount_id(), passwordHasher.hash(account.getPassword()));
+        }
+        return new Account(existing.getAccount_id(), existing.getUsername(), account.getPassword());
+    }
+
+    /**
+     * Start a session for an account that has just logged in.
+     *
+     * @param account_id the ID of the account.
+     * @return an opaque token identifying the session.
+     */
+    public String startSession(int account_id) {
+        return sessionStore.create(account_id);
+    }
+
+    /**
+     * Find the account a session token belongs to, from memory only.
+     *
+     * @param token a session token returned by startSession().
+     * @return the account ID, or null if the token is unknown or has expired.
+     */
+    public Integer getSessionAccountId(String token) {
+        return sessionStore.resolve(token);
+    }
+
+    /**
+     * @return the number of sessions currently held.
+     */
+    public int getSessionCount() {
+        return sessionStore.size();
+    }
+
+    /**
+     * Stop the session store's housekeeping thread.
+     */
+    public void close() {
+        sessionStore.shutdown();
     }
 }
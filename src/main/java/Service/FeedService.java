@@ -0,0 +1,271 @@
+package Service;
+
+import Model.Message;
+import Model.MessagePage;
+import DAO.FollowDAO;
+import DAO.MessageDAO;
+import Util.LruCache;
+import Util.Timeline;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FeedService class containing the follow graph and home timelines between the web layer (controller) and
+ * persistence layer (DAO).
+ *
+ * The follow graph is loaded into memory at startup and kept current by follow() and unfollow(). Home timelines are
+ * bounded Timelines of message IDs. One is built from the database the first time its account's feed is read, then
+ * kept current by fan-out on write: each new message is pushed into the timelines of its author's followers.
+ *
+ * Accounts with at least feed.celebrityFollowers followers are celebrities. Their messages are not fanned out.
+ * Instead each celebrity has an outbox Timeline of its own newest messages, which feed reads merge in. Reading a
+ * page therefore costs O(page size) per celebrity followed, however many accounts are followed in all. An account
+ * stays a celebrity until restart, so its messages never have to be pushed back into follower timelines.
+ *
+ * A feed holds the newest feed.timelineSize messages; older ones are reachable through each account's messages.
+ */
+public class FeedService {
+
+    private static final int TIMELINE_SIZE = Integer.getInteger("feed.timelineSize", 500);
+    private static final int CELEBRITY_FOLLOWERS = Integer.getInteger("feed.celebrityFollowers", 1000);
+
+    FollowDAO followDAO;
+    MessageDAO messageDAO;
+    MessageService messageService;
+    AccountService accountService;
+
+    /**
+     * followee -> followers, and follower -> followees.
+     */
+    private final Map<Integer, Set<Integer>> followers = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> following = new ConcurrentHashMap<>();
+    private final Set<Integer> celebrities = ConcurrentHashMap.newKeySet();
+    /**
+     * follower -> the celebrities it follows, so a feed read finds them without walking every followee.
+     */
+    private final Map<Integer, Set<Integer>> celebritiesFollowed = new ConcurrentHashMap<>();
+    /**
+     * Home timelines of accounts whose feed has been read recently; -Dfeed.maxTimelines bounds how many are held.
+     */
+    private final LruCache<Integer, Timeline> timelines =
+            new LruCache<>(Integer.getInteger("feed.maxTimelines", 10000));
+    /**
+     * Celebrities' own newest messages, built on first use.
+     */
+    private final Map<Integer, Timeline> outboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for a feedService that loads the follow graph and subscribes to new messages from messageService.
+     *
+     * @param accountService used to check that both sides of a follow exist.
+     * @param messageService the source of new messages and of message contents.
+     */
+    public FeedService(AccountService accountService, MessageService messageService) {
+        this.accountService = accountService;
+        this.messageService = messageService;
+        followDAO = new FollowDAO();
+        messageDAO = new MessageDAO();
+        followDAO.loadFollows(this::addEdge);
+        for (Map.Entry<Integer, Set<Integer>> entry : followers.entrySet()) {
+            if (entry.getValue().size() >= CELEBRITY_FOLLOWERS) promote(entry.getKey());
+        }
+        messageService.addPostListener(this::fanOut);
+    }
+
+    /**
+     * Make one account follow another. The followee's recent messages appear in the follower's feed at once.
+     *
+     * @param follower_id the following account.
+     * @param followee_id the account to follow.
+     * @return false if the follow is invalid: an account following itself or one that does not exist.
+     */
+    public synchronized boolean follow(int follower_id, int followee_id) {
+        if (follower_id == followee_id) return false;
+        if (!accountService.accountExists(follower_id) || !accountService.accountExists(followee_id)) return false;
+        if (!followDAO.insertFollow(follower_id, followee_id)) {
+            return isFollowing(follower_id, followee_id);
+        }
+        addEdge(follower_id, followee_id);
+        if (!celebrities.contains(followee_id)
+                && followers.get(followee_id).size() >= CELEBRITY_FOLLOWERS) promote(followee_id);
+
+        if (!celebrities.contains(followee_id)) {
+            Timeline timeline = timelines.get(follower_id);
+            if (timeline != null) {
+                for (int message_id : messageDAO.getRecentMessageIdsByAccountId(followee_id, TIMELINE_SIZE)) {
+                    timeline.add(message_id, followee_id);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Make one account stop following another. The followee's messages leave the follower's feed at once.
+     *
+     * @param follower_id the following account.
+     * @param followee_id the account to unfollow.
+     */
+    public synchronized void unfollow(int follower_id, int followee_id) {
+        followDAO.deleteFollow(follower_id, followee_id);
+        removeFrom(followers, followee_id, follower_id);
+        removeFrom(following, follower_id, followee_id);
+        removeFrom(celebritiesFollowed, follower_id, followee_id);
+        Timeline timeline = timelines.get(follower_id);
+        if (timeline != null) timeline.removeAuthor(followee_id);
+    }
+
+    /**
+     * @param follower_id the following account.
+     * @param followee_id the followed account.
+     * @return true if follower_id follows followee_id.
+     */
+    public boolean isFollowing(int follower_id, int followee_id) {
+        Set<Integer> followees = following.get(follower_id);
+        return followees != null && followees.contains(followee_id);
+    }
+
+    /**
+     * Retrieve one page of an account's home feed: messages from the accounts it follows, newest first.
+     *
+     * @param account_id the ID of the account reading its feed.
+     * @param cursor the next cursor from the previous page, or null for the first page.
+     * @param limit the maximum number of messages on the page.
+     * @return the page of messages, with a cursor for the following page if there may be more.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public MessagePage getFeedPage(int account_id, String cursor, int limit) {
+        int after = MessageService.decodeCursor(cursor);
+        int before = after == 0 ? Integer.MAX_VALUE : after;
+
+        int[] candidates = homeTimeline(account_id).newestBefore(before, limit);
+        Set<Integer> followedCelebrities = celebritiesFollowed.get(account_id);
+        if (followedCelebrities != null && !followedCelebrities.isEmpty()) {
+            for (Integer celebrity : followedCelebrities) {
+                candidates = mergeNewest(candidates, outbox(celebrity).newestBefore(before, limit), limit);
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>(candidates.length);
+        for (int id : candidates) ids.add(id);
+        List<Message> items = messageService.getMessagesByIds(ids);
+        String next = candidates.length == limit
+            ? MessageService.encodeCursor(candidates[candidates.length - 1])
+            : null;
+        return new MessagePage(items, next);
+    }
+
+    /**
+     * @return the number of home timelines held in memory.
+     */
+    public int getTimelineCount() {
+        return timelines.size();
+    }
+
+    /**
+     * @return the number of accounts treated as celebrities.
+     */
+    public int getCelebrityCount() {
+        return celebrities.size();
+    }
+
+    /**
+     * Post listener: push a new message into its author's followers' timelines that are in memory, or into the
+     * author's outbox if it is a celebrity. Timelines not in memory pick the message up when they are built.
+     */
+    private void fanOut(Message message) {
+        int author = message.getPosted_by();
+        if (celebrities.contains(author)) {
+            Timeline outbox = outboxes.get(author);
+            if (outbox != null) outbox.add(message.getMessage_id(), author);
+            return;
+        }
+        Set<Integer> authorFollowers = followers.get(author);
+        if (authorFollowers == null) return;
+        for (Integer follower : authorFollowers) {
+            Timeline timeline = timelines.get(follower);
+            if (timeline != null) timeline.add(message.getMessage_id(), author);
+        }
+    }
+
+    /**
+     * The account's home timeline, built from the database if it is not in memory. The new timeline is published
+     * before it is filled, and locked while filling, so messages fanned out meanwhile are kept and readers wait.
+     */
+    private Timeline homeTimeline(int account_id) {
+        Timeline timeline = timelines.get(account_id);
+        if (timeline != null) return timeline;
+        Timeline fresh = new Timeline(TIMELINE_SIZE);
+        synchronized (fresh) {
+            Timeline existing = timelines.putIfAbsent(account_id, fresh);
+            if (existing != null) return existing;
+            for (int[] entry : followDAO.getRecentFeedEntries(account_id, TIMELINE_SIZE)) {
+                if (!celebrities.contains(entry[1])) fresh.add(entry[0], entry[1]);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * A celebrity's outbox, built from the database on first use in the same way as homeTimeline().
+     */
+    private Timeline outbox(int account_id) {
+        Timeline outbox = outboxes.get(account_id);
+        if (outbox != null) return outbox;
+        Timeline fresh = new Timeline(TIMELINE_SIZE);
+        synchronized (fresh) {
+            Timeline existing = outboxes.putIfAbsent(account_id, fresh);
+            if (existing != null) return existing;
+            for (int message_id : messageDAO.getRecentMessageIdsByAccountId(account_id, TIMELINE_SIZE)) {
+                fresh.add(message_id, account_id);
+            }
+        }
+        return fresh;
+    }
+
+    private void promote(int account_id) {
+        celebrities.add(account_id);
+        for (Integer follower : followers.getOrDefault(account_id, Collections.emptySet())) {
+            celebritiesFollowed.computeIfAbsent(follower, key -> ConcurrentHashMap.newKeySet()).add(account_id);
+        }
+    }
+
+    private void addEdge(int follower_id, int followee_id) {
+        followers.computeIfAbsent(followee_id, key -> ConcurrentHashMap.newKeySet()).add(follower_id);
+        following.computeIfAbsent(follower_id, key -> ConcurrentHashMap.newKeySet()).add(followee_id);
+        if (celebrities.contains(followee_id)) {
+            celebritiesFollowed.computeIfAbsent(follower_id, key -> ConcurrentHashMap.newKeySet()).add(followee_id);
+        }
+    }
+
+    private static void removeFrom(Map<Integer, Set<Integer>> map, int key, int value) {
+        Set<Integer> values = map.get(key);
+        if (values != null) values.remove(value);
+    }
+
+    /**
+     * Merge two newest-first ID lists into the newest limit distinct IDs. An account that became a celebrity can
+     * have messages in both a home timeline and its outbox.
+     */
+    private static int[] mergeNewest(int[] a, int[] b, int limit) {
+        int[] merged = new int[Math.min(limit, a.length + b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (n < merged.length && (i < a.length || j < b.length)) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] >= b[j])) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            if (n == 0 || merged[n - 1] != next) merged[n++] = next;
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+}
@@ -1,8 +1,32 @@
 package Service;
 
 import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessageEvent;
+import Model.MessagePage;
+import DAO.GroupCommitMessageWriter;
 import DAO.MessageDAO;
+import DAO.MessageRowHandler;
+import Util.BroadcastRing;
+import Util.ChangeTracker;
+import Util.DatabaseUnavailableException;
+import Util.LruCache;
+import Util.MessageJsonCache;
+import Util.SearchIndex;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * MessageService class containing business logic between the web layer (controller) and
@@ -12,21 +36,200 @@ public class MessageService {
 
     MessageDAO messageDAO;
     /**
-     * No-args constructor for a messageService instantiates a plain messageDAO.
+     * Read-through cache in front of messageDAO.getMessageById, invalidated by updateMessage and deleteMessage. Its
+     * size can be set with -Dcache.messages.maxSize.
+     */
+    LruCache<Integer, Message> messageCache;
+    /**
+     * Each message's JSON encoding as bytes, invalidated by updateMessage and deleteMessage like messageCache. Its
+     * size can be set with -Dcache.messageJson.maxSize; full listings only hit it if it holds every message.
+     */
+    MessageJsonCache jsonCache;
+    /**
+     * Used to check that posted_by refers to a real account before a message is inserted.
+     */
+    AccountService accountService;
+    /**
+     * Group-commit pipeline used by addMessage when -DgroupCommit.enabled=true, otherwise null.
+     */
+    GroupCommitMessageWriter groupCommitWriter;
+    /**
+     * Longest addMessage waits for its group commit (-DgroupCommit.awaitMillis) before giving up with a
+     * DatabaseUnavailableException. The default leaves room for one full pool acquisition timeout.
+     */
+    long groupCommitAwaitMillis;
+    /**
+     * Full-text index over message_text, built from the table at startup and updated by every successful add,
+     * update and delete.
+     */
+    SearchIndex searchIndex;
+    /**
+     * Striped locks that order each message's update with its re-indexing, so of two concurrent updates the one
+     * committed last is also indexed last. Deletes need no lock: the index ignores updates to a removed ID.
+     * ReentrantLocks rather than monitors, so a virtual thread waiting on the database here does not pin its carrier.
+     */
+    private final ReentrantLock[] updateLocks = new ReentrantLock[64];
+    /**
+     * Called with every message successfully posted, after it is committed.
+     */
+    private final List<Consumer<Message>> postListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Every successful create, update and delete, for live subscribers. Its size can be set with -Dlive.ringSize.
+     */
+    private final BroadcastRing<MessageEvent> events =
+        new BroadcastRing<>(Integer.getInteger("live.ringSize", 65536));
+    /**
+     * Versions behind the ETags of message reads, bumped by every successful add, update and delete. The number of
+     * messages and accounts tracked individually can be set with -Detag.maxTracked.
+     */
+    private final ChangeTracker changeTracker = new ChangeTracker(Integer.getInteger("etag.maxTracked", 100000));
+    /**
+     * No-args constructor for a messageService instantiates a plain messageDAO and its own accountService.
      */
     public MessageService(){
+        this(new AccountService());
+    }
+
+    /**
+     * Constructor for a messageService that validates posted_by against an existing accountService, so both services
+     * share one account ID index.
+     *
+     * @param accountService the account service whose index is kept current by new registrations.
+     */
+    public MessageService(AccountService accountService){
+        this.accountService = accountService;
         messageDAO = new MessageDAO();
+        messageCache = new LruCache<>(Integer.getInteger("cache.messages.maxSize", 10000));
+        jsonCache = new MessageJsonCache(Integer.getInteger("cache.messageJson.maxSize", 100000));
+        if (Boolean.getBoolean("groupCommit.enabled")) {
+            groupCommitWriter = new GroupCommitMessageWriter(
+                messageDAO,
+                Integer.getInteger("groupCommit.maxBatchSize", 64),
+                Long.getLong("groupCommit.maxLingerMicros", 1000L),
+                Integer.getInteger("groupCommit.queueCapacity", 4096)
+            );
+            groupCommitAwaitMillis = Long.getLong("groupCommit.awaitMillis", 10000L);
+        }
+        for (int i = 0; i < updateLocks.length; i++) updateLocks[i] = new ReentrantLock();
+        searchIndex = new SearchIndex();
+        try {
+            messageDAO.streamAllMessages((message_id, posted_by, message_text, time_posted_epoch) ->
+                searchIndex.add(message_id, message_text));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Register a callback for newly posted messages. It runs after the message is committed, on the posting
+     * request's thread or, with group commit, on the writer thread, so it should be quick and must not throw.
+     *
+     * @param listener receives each message posted through addMessage or addMessages, with its message_id.
+     */
+    public void addPostListener(Consumer<Message> listener) {
+        postListeners.add(listener);
+    }
+
+    private void messagePosted(Message message) {
+        searchIndex.add(message.getMessage_id(), message.getMessage_text());
+        changeTracker.recordChange(message.getMessage_id(), message.getPosted_by());
+        events.publish(new MessageEvent("created", message));
+        for (Consumer<Message> listener : postListeners) {
+            listener.accept(message);
+        }
+    }
+
+    /**
+     * Release background resources held by this service. Messages already queued for group commit are written first.
+     */
+    public void close() {
+        if (groupCommitWriter != null) groupCommitWriter.shutdown();
     }
 
     /**
      * Add a new message to the database.
      *
      * @param message an object representing a new Message.
-     * @return the newly added message if the add operation was successful, including the message_id. 
+     * @return the newly added message if the add operation was successful, including the message_id. Returns null
+     *         without touching the database if the text is invalid or posted_by is not a known account.
      */
     public Message addMessage(Message message){
-        if (message.getMessage_text().length() > 255 || message.getMessage_text().length() < 1) return null;
-        return messageDAO.insertMessage(message);
+        if (!isValidNewMessage(message)) return null;
+        if (groupCommitWriter != null) return awaitGroupCommit(message);
+        Message inserted = messageDAO.insertMessage(message);
+        if (inserted != null) messagePosted(inserted);
+        return inserted;
+    }
+
+    /**
+     * Queue a message for group commit and wait, at most groupCommitAwaitMillis, for it to be written. A failure on
+     * the writer thread is rethrown here as it would have been thrown by a direct insert.
+     *
+     * The message's side effects run from the commit's completion, not from this wait, so a message that commits
+     * after its caller gave up with a 503 is still indexed, versioned, published and fanned out.
+     */
+    private Message awaitGroupCommit(Message message) {
+        try {
+            return groupCommitWriter.submit(message)
+                .thenApply(inserted -> {
+                    if (inserted != null) messagePosted(inserted);
+                    return inserted;
+                })
+                .get(groupCommitAwaitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new DatabaseUnavailableException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseUnavailableException(e);
+        }
+    }
+
+    /**
+     * Add several new messages to the database in one transaction. Each message is validated with the same rules as
+     * addMessage; the valid ones are inserted together as one JDBC batch.
+     *
+     * @param messages objects representing new Messages.
+     * @return one result per input message, in the same order: status 200 with the created message, 400 if the
+     *         message failed validation, or 500 if the batch could not be written.
+     */
+    public List<MessageBatchResult> addMessages(List<Message> messages) {
+        List<Message> valid = new ArrayList<>();
+        for (Message message : messages) {
+            if (isValidNewMessage(message)) valid.add(message);
+        }
+        List<Message> inserted = messageDAO.insertMessages(valid);
+        if (inserted != null) {
+            for (Message message : inserted) {
+                messagePosted(message);
+            }
+        }
+
+        List<MessageBatchResult> results = new ArrayList<>(messages.size());
+        int next = 0;
+        for (Message message : messages) {
+            if (next < valid.size() && valid.get(next) == message) {
+                results.add(inserted == null
+                    ? new MessageBatchResult(500, null)
+                    : new MessageBatchResult(200, inserted.get(next)));
+                next++;
+            } else {
+                results.add(new MessageBatchResult(400, null));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * A new message is valid if its text is not blank, is not over 255 characters, and posted_by is a known account.
+     * Checked without touching the database.
+     */
+    private boolean isValidNewMessage(Message message) {
+        if (message == null || message.getMessage_text() == null) return false;
+        if (message.getMessage_text().length() > 255 || message.getMessage_text().length() < 1) return false;
+        return accountService.accountExists(message.getPosted_by());
     }
 
     /**
@@ -45,17 +248,25 @@ public class MessageService {
      * @return message object with values retrieved from message_id, null if message_id not found.
      */
     public Message getMessageById(int message_id) {
-        return messageDAO.getMessageById(message_id);
+        return messageCache.get(message_id, messageDAO::getMessageById);
     }
 
     /**
-     * Delete an existing message from the database.
+     * Delete an existing message from the database in a single statement.
      * 
      * @param message_id the ID of the message to be deleted.
-     * @return 1 if the message was successfully deleted, 0 otherwise.
+     * @return the deleted message, null if message_id was not found.
      */
-    public int deleteMessage(int message_id) {
-        return messageDAO.deleteMessage(message_id);
+    public Message deleteMessage(int message_id) {
+        Message deleted = messageDAO.deleteMessageReturning(message_id);
+        messageCache.invalidate(message_id);
+        jsonCache.invalidate(message_id);
+        if (deleted != null) {
+            searchIndex.remove(message_id);
+            changeTracker.recordChange(message_id, deleted.getPosted_by());
+            events.publish(new MessageEvent("deleted", deleted));
+        }
+        return deleted;
     }
 
     /**
@@ -64,13 +275,109 @@ public class MessageService {
      * @param message_id the ID of the message to be modified.
      * @param message an object containing all data that should replace the values contained by the existing message_id.
      * @return the newly updated message if the update operation was successful. Returns null if the update operation was
-     *         unsuccessful.
+     *         unsuccessful. The text is validated first, then the row is updated and read back in a single statement.
      */
     public Message updateMessage(int message_id, Message message) {
-        if (messageDAO.getMessageById(message_id) == null) return null;
         if (message.getMessage_text().length() > 255 || message.getMessage_text().length() < 1) return null;
-        messageDAO.updateMessage(message_id, message);
-        return messageDAO.getMessageById(message_id);
+        Message updated;
+        ReentrantLock lock = updateLocks[Math.floorMod(message_id, updateLocks.length)];
+        lock.lock();
+        try {
+            updated = messageDAO.updateMessageReturning(message_id, message);
+            if (updated != null) searchIndex.update(message_id, updated.getMessage_text());
+        } finally {
+            lock.unlock();
+        }
+        messageCache.invalidate(message_id);
+        jsonCache.invalidate(message_id);
+        if (updated != null) {
+            changeTracker.recordChange(message_id, updated.getPosted_by());
+            events.publish(new MessageEvent("updated", updated));
+        }
+        return updated;
+    }
+
+    /**
+     * Full-text search over message_text, ranked by relevance (BM25). The ranking comes from the in-memory index; the
+     * messages themselves come from the message cache, with any misses fetched in one query.
+     *
+     * @param query free text; a message matches if it contains any of its words, ignoring case.
+     * @param limit the maximum number of messages to return.
+     * @return the best matching messages, best first.
+     */
+    public List<Message> searchMessages(String query, int limit) {
+        return getMessagesByIds(searchIndex.search(query, limit));
+    }
+
+    /**
+     * Get several messages in the database, from the message cache where possible and with any misses fetched in one
+     * query.
+     *
+     * @param ids the IDs of the messages to be retrieved.
+     * @return the messages in the order of ids; IDs not found are skipped.
+     */
+    public List<Message> getMessagesByIds(List<Integer> ids) {
+        Map<Integer, Message> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            Message cached = messageCache.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        for (Message message : messageDAO.getMessagesByIds(missing)) {
+            found.put(message.getMessage_id(), message);
+        }
+        List<Message> results = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Message message = found.get(id);
+            if (message != null) results.add(message);
+        }
+        return results;
+    }
+
+    /**
+     * @return the cache of messages' JSON encodings, which serializes message responses.
+     */
+    public MessageJsonCache getJsonCache() {
+        return jsonCache;
+    }
+
+    /**
+     * @return the ring every successful create, update and delete is published to.
+     */
+    public BroadcastRing<MessageEvent> getEventRing() {
+        return events;
+    }
+
+    /**
+     * @return the versions of messages, accounts' messages and all messages, for building ETags.
+     */
+    public ChangeTracker getChangeTracker() {
+        return changeTracker;
+    }
+
+    /**
+     * @return the full-text index behind searchMessages, for reading its size.
+     */
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * @return the group-commit writer used by addMessage, or null if group commit is disabled.
+     */
+    public GroupCommitMessageWriter getGroupCommitWriter() {
+        return groupCommitWriter;
+    }
+
+    /**
+     * @return the cache in front of getMessageById, for reading its hit, miss and eviction counters.
+     */
+    public LruCache<Integer, Message> getMessageCache() {
+        return messageCache;
     }
 
     /**
@@ -83,4 +390,83 @@ public class MessageService {
         return messageDAO.getAllMessagesByAccountId(account_id);
     }
 
-}
\ No newline at end of file
+    /**
+     * Stream all messages, one row at a time, without loading them all into memory.
+     *
+     * @param handler receives each message row.
+     * @throws IOException if the handler fails to write a row.
+     * @throws IllegalStateException if the query fails part-way.
+     */
+    public void streamAllMessages(MessageRowHandler handler) throws IOException {
+        messageDAO.streamAllMessages(handler);
+    }
+
+    /**
+     * Stream all messages from a user, one row at a time, without loading them all into memory.
+     *
+     * @param account_id the ID of the account to get all messages from.
+     * @param handler receives each message row.
+     * @throws IOException if the handler fails to write a row.
+     * @throws IllegalStateException if the query fails part-way.
+     */
+    public void streamAllMessagesByAccountId(int account_id, MessageRowHandler handler) throws IOException {
+        messageDAO.streamAllMessagesByAccountId(account_id, handler);
+    }
+
+    /**
+     * Retrieve one page of all messages, ordered by message_id.
+     *
+     * @param cursor the next cursor from the previous page, or null for the first page.
+     * @param limit the maximum number of messages on the page.
+     * @return the page of messages, with a cursor for the following page if there may be more.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public MessagePage getMessagePage(String cursor, int limit) {
+        List<Message> items = messageDAO.getMessagesAfter(decodeCursor(cursor), limit);
+        return toPage(items, limit);
+    }
+
+    /**
+     * Retrieve one page of the messages posted by a user, ordered by message_id.
+     *
+     * @param account_id the ID of the account to get messages from.
+     * @param cursor the next cursor from the previous page, or null for the first page.
+     * @param limit the maximum number of messages on the page.
+     * @return the page of messages, with a cursor for the following page if there may be more.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public MessagePage getMessagePageByAccountId(int account_id, String cursor, int limit) {
+        List<Message> items = messageDAO.getMessagesByAccountIdAfter(account_id, decodeCursor(cursor), limit);
+        return toPage(items, limit);
+    }
+
+    /**
+     * A full page means there may be more rows, so hand back a cursor positioned after its last message.
+     */
+    private MessagePage toPage(List<Message> items, int limit) {
+        String next = null;
+        if (!items.isEmpty() && items.size() == limit) {
+            next = encodeCursor(items.get(items.size() - 1).getMessage_id());
+        }
+        return new MessagePage(items, next);
+    }
+
+    /**
+     * Cursors are opaque to clients: the last message_id seen, base64url encoded. FeedService pages the same way.
+     */
+    static String encodeCursor(int message_id) {
+        byte[] raw = Integer.toString(message_id).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return 0;
+        try {
+            byte[] raw = Base64.getUrlDecoder().decode(cursor);
+            return Integer.parseInt(new String(raw, StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+
+}
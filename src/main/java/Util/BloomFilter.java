@@ -0,0 +1,108 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size Bloom filter of strings. mightContain() never gives a false negative for a string that was put(), and
+ * gives a false positive with roughly the configured probability while no more than the expected number of strings
+ * have been added; past that the false positive rate climbs gradually.
+ *
+ * Like ConcurrentBitSet, the bits live in an AtomicLongArray: mightContain() never locks and put() sets each bit with
+ * a compare-and-set, so both are safe from any thread. Strings cannot be removed.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * @param expectedInsertions the number of strings the filter is sized for.
+     * @param falsePositiveRate the target false positive probability at that size, between 0 and 1.
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) >>> 6));
+        words = new AtomicLongArray(wordCount);
+        bitCount = (long) wordCount << 6;
+        hashCount = (int) Math.max(1, Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * @param value the string to add.
+     */
+    public void put(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bitIndex = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            int index = (int) (bitIndex >>> 6);
+            long bit = 1L << bitIndex;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & bit) != 0) break;
+            } while (!words.compareAndSet(index, word, word | bit));
+        }
+        insertions.increment();
+    }
+
+    /**
+     * @param value the string to test.
+     * @return false if the string was definitely never added, true if it probably was.
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bitIndex = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((words.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of put() calls so far, counting repeats.
+     */
+    public long getInsertionCount() {
+        return insertions.sum();
+    }
+
+    /**
+     * @return the number of bits in the filter.
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return the number of bits set per string.
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 64-bit FNV-1a over the string's chars, finished with the MurmurHash3 mixer so both halves are well spread.
+     * The two halves seed the k probe positions (Kirsch-Mitzenmacher double hashing).
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
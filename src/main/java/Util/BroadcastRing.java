@@ -0,0 +1,119 @@
+package Util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A fixed-size, lock-free ring of events that publishers never wait on. Each event gets the next sequence number and
+ * overwrites the slot of the event published capacity sequences earlier, whether or not anyone has read it.
+ *
+ * Every slot carries the sequence of the event it holds. A publisher marks the slot as being written, stores the
+ * event, then stores its sequence; a reader accepts an event only if the slot shows the sequence it expects both
+ * before and after reading it. A reader that has fallen a whole ring behind sees a newer sequence and learns that it
+ * was lapped, so it can skip ahead rather than hold anybody up.
+ *
+ * One consumer thread at a time may wait for new events with awaitPublished(); publish() wakes it.
+ *
+ * @param <T> event type.
+ */
+public class BroadcastRing<T> {
+
+    /**
+     * Outcome of read() when the event is not published yet.
+     */
+    public static final Object NOT_PUBLISHED = new Object();
+    /**
+     * Outcome of read() when the event has already been overwritten.
+     */
+    public static final Object LAPPED = new Object();
+
+    private static final long WRITING = -1;
+
+    private final int mask;
+    private final AtomicReferenceArray<T> events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private volatile Thread waiter;
+
+    /**
+     * @param capacity the number of events held, rounded up to a power of two.
+     */
+    public BroadcastRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        events = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i - (long) size);
+        }
+    }
+
+    /**
+     * Publish an event. Never blocks.
+     *
+     * @param event the event.
+     * @return the event's sequence number.
+     */
+    public long publish(T event) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) sequence & mask;
+        sequences.set(slot, WRITING);
+        events.set(slot, event);
+        sequences.set(slot, sequence);
+        Thread consumer = waiter;
+        if (consumer != null) LockSupport.unpark(consumer);
+        return sequence;
+    }
+
+    /**
+     * @param sequence the sequence number of the event wanted.
+     * @return the event, NOT_PUBLISHED if it has not been published yet, or LAPPED if it has been overwritten.
+     */
+    public Object read(long sequence) {
+        int slot = (int) sequence & mask;
+        long before = sequences.get(slot);
+        if (before == sequence) {
+            T event = events.get(slot);
+            if (sequences.get(slot) == sequence) return event;
+            return LAPPED;
+        }
+        if (before == WRITING) {
+            // Being written: by the event wanted if it is the next one due, otherwise by a later one.
+            return sequence >= nextSequence.get() - (mask + 1) ? NOT_PUBLISHED : LAPPED;
+        }
+        return before < sequence ? NOT_PUBLISHED : LAPPED;
+    }
+
+    /**
+     * Wait until the event with a given sequence number might be available.
+     *
+     * @param sequence the sequence number of the event wanted.
+     * @param timeout the longest to wait.
+     * @param unit the unit of timeout.
+     */
+    public void awaitPublished(long sequence, long timeout, TimeUnit unit) {
+        waiter = Thread.currentThread();
+        try {
+            if (nextSequence.get() <= sequence) LockSupport.parkNanos(this, unit.toNanos(timeout));
+        } finally {
+            waiter = null;
+        }
+    }
+
+    /**
+     * @return the sequence number the next published event will get.
+     */
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * @return the number of events held.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
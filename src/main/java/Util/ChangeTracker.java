@@ -0,0 +1,90 @@
+package Util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Version numbers for messages, each account's messages and all messages, from which strong ETags are built. Every
+ * insert, update and delete takes the next global version and stamps it on the message and its author's account, so
+ * a version only ever grows and an unchanged version means unchanged contents.
+ *
+ * Changes must be recorded after they are committed, and a version must be read before the data it describes. A
+ * response can then only ever carry a version older than its contents, which costs a spare 200 but never a wrong 304.
+ *
+ * Only the last maxTracked messages and accounts changed are remembered. When either map fills up it is cleared and
+ * everything not in it reports the global version at that moment, which is at least as new as anything forgotten.
+ * Versions restart with the process, so each tracker puts a random epoch into its ETags.
+ */
+public class ChangeTracker {
+
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final int maxTracked;
+    private final Map<Integer, Long> messages = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> accounts = new ConcurrentHashMap<>();
+    private volatile long version;
+    private volatile long messageFloor;
+    private volatile long accountFloor;
+
+    /**
+     * @param maxTracked the number of messages, and of accounts, whose versions are remembered individually.
+     */
+    public ChangeTracker(int maxTracked) {
+        this.maxTracked = maxTracked;
+    }
+
+    /**
+     * Record a committed insert, update or delete. Writers are serialized here; this is cheap next to the write.
+     *
+     * @param message_id the ID of the message changed.
+     * @param account_id the ID of the account that posted it.
+     */
+    public synchronized void recordChange(int message_id, int account_id) {
+        long next = version + 1;
+        // The floor is raised before the map is cleared, so a reader that misses sees the new floor.
+        if (messages.size() >= maxTracked) {
+            messageFloor = version;
+            messages.clear();
+        }
+        if (accounts.size() >= maxTracked) {
+            accountFloor = version;
+            accounts.clear();
+        }
+        messages.put(message_id, next);
+        accounts.put(account_id, next);
+        version = next;
+    }
+
+    /**
+     * @return the version of the whole message table.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param message_id the ID of a message, which need not exist.
+     * @return the version of that message.
+     */
+    public long getMessageVersion(int message_id) {
+        Long stamped = messages.get(message_id);
+        return stamped != null ? stamped : messageFloor;
+    }
+
+    /**
+     * @param account_id the ID of an account, which need not exist.
+     * @return the version of the messages that account has posted.
+     */
+    public long getAccountVersion(int account_id) {
+        Long stamped = accounts.get(account_id);
+        return stamped != null ? stamped : accountFloor;
+    }
+
+    /**
+     * @param version a version from this tracker.
+     * @return a strong ETag, quotes included, for that version.
+     */
+    public String etag(long version) {
+        return "\"" + epoch + "-" + Long.toHexString(version) + "\"";
+    }
+}
@@ -0,0 +1,541 @@
+package Util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * A bounded pool of JDBC connections. At most maxSize physical connections exist at any time, and a caller that
+ * cannot get one within the acquisition timeout receives an SQLException instead of waiting forever.
+ *
+ * Connections handed out by the pool are proxies: calling close() returns the physical connection to the pool
+ * rather than closing it, so DAO code can release connections with an ordinary try-with-resources block.
+ * Idle connections are validated before reuse and evicted once they sit idle for longer than idleTimeoutMillis,
+ * while at least minIdle connections are kept warm.
+ *
+ * Each physical connection keeps up to statementCacheSize prepared statements open across borrows. Closing a
+ * statement prepared through a pooled connection returns it to that cache, so the DAOs' fixed SQL strings are parsed
+ * and planned once per connection rather than once per call.
+ */
+public class ConnectionPool {
+
+    private final DataSource dataSource;
+    private final int minIdle;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    /**
+     * Permits bound the number of connections that may be borrowed at once; total bounds the physical connections.
+     * This is also what bounds database concurrency when requests run on virtual threads: however many requests are
+     * in flight, at most maxSize of them are inside JDBC and the rest park here, which is cheap for virtual threads.
+     */
+    private final Semaphore permits;
+    /**
+     * Idle connections, most recently returned first so hot connections are reused and cold ones age out.
+     */
+    private final LinkedBlockingDeque<IdleConnection> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService housekeeper;
+    /**
+     * Prepared statement cache of each open physical connection.
+     */
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    /**
+     * @param dataSource source of physical connections.
+     * @param minIdle number of idle connections kept open even when they are not used.
+     * @param maxSize maximum number of physical connections the pool will open.
+     * @param acquireTimeoutMillis how long getConnection() waits for a free connection before failing.
+     * @param idleTimeoutMillis how long a connection may sit idle before it is evicted.
+     * @param validationTimeoutSeconds timeout passed to Connection.isValid() when validating an idle connection.
+     * @param statementCacheSize prepared statements kept open per connection; 0 disables the cache.
+     */
+    public ConnectionPool(DataSource dataSource, int minIdle, int maxSize, long acquireTimeoutMillis,
+                          long idleTimeoutMillis, int validationTimeoutSeconds, int statementCacheSize) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be at least 1");
+        this.dataSource = dataSource;
+        this.minIdle = Math.max(0, Math.min(minIdle, maxSize));
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        housekeeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool, opening a new one if none is idle and the pool is below maxSize.
+     *
+     * @return a pooled connection which must be closed to return it to the pool.
+     * @throws SQLException if no connection became available within the acquisition timeout.
+     */
+    public Connection getConnection() throws SQLException {
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLException("Timed out after " + acquireTimeoutMillis + "ms waiting for a pooled connection");
+        }
+
+        try {
+            Connection physical = takeIdle();
+            while (physical == null) {
+                if (reserveSlot()) {
+                    physical = open();
+                } else {
+                    // Every slot is taken by a connection being opened for the idle deque; wait for it to land.
+                    physical = takeIdle(10);
+                }
+            }
+            active.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        } catch (InterruptedException e) {
+            permits.release();
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+    }
+
+    /**
+     * Pop idle connections until one passes validation.
+     *
+     * @return a valid physical connection, or null if no idle connection is available.
+     */
+    private Connection takeIdle() {
+        IdleConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            if (isValid(candidate.connection)) return candidate.connection;
+            discard(candidate.connection);
+        }
+        return null;
+    }
+
+    /**
+     * Like takeIdle(), but waits up to waitMillis for a connection to be returned.
+     */
+    private Connection takeIdle(long waitMillis) throws InterruptedException {
+        IdleConnection candidate = idle.pollFirst(waitMillis, TimeUnit.MILLISECONDS);
+        if (candidate == null) return null;
+        if (isValid(candidate.connection)) return candidate.connection;
+        discard(candidate.connection);
+        return null;
+    }
+
+    /**
+     * Claim room for one more physical connection.
+     *
+     * @return true if the pool was below maxSize and the slot now belongs to the caller.
+     */
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = total.get();
+            if (current >= maxSize) return false;
+        } while (!total.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Open a physical connection in a slot already claimed with reserveSlot().
+     */
+    private Connection open() throws SQLException {
+        try {
+            Connection connection = dataSource.getConnection();
+            created.incrementAndGet();
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void discard(Connection connection) {
+        total.decrementAndGet();
+        statementCaches.remove(connection);
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Called when a borrowed connection is closed. Leaves the connection in auto-commit mode, as DAO code expects,
+     * and puts it back at the head of the idle deque.
+     */
+    private void release(Connection physical) {
+        active.decrementAndGet();
+        try {
+            if (physical.isClosed()) {
+                total.decrementAndGet();
+                statementCaches.remove(physical);
+            } else {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                idle.offerFirst(new IdleConnection(physical, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Close connections that have been idle past idleTimeoutMillis, keeping at least minIdle of them open, then top
+     * the pool back up to minIdle.
+     */
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        Iterator<IdleConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && idle.size() > minIdle) {
+            IdleConnection candidate = oldestFirst.next();
+            if (candidate.idleSince < cutoff && idle.removeLastOccurrence(candidate)) {
+                evicted.incrementAndGet();
+                discard(candidate.connection);
+            }
+        }
+        while (idle.size() < minIdle && reserveSlot()) {
+            try {
+                idle.offerLast(new IdleConnection(open(), System.currentTimeMillis()));
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Close every idle connection and stop the housekeeping thread. Connections that are still borrowed are closed
+     * when they are returned.
+     */
+    public void shutdown() {
+        housekeeper.shutdownNow();
+        IdleConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            discard(candidate.connection);
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        StatementCache cache = statementCacheSize > 0
+            ? statementCaches.computeIfAbsent(physical, connection -> new StatementCache(statementCacheSize))
+            : null;
+        return (Connection) Proxy.newProxyInstance(
+            ConnectionPool.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            new PooledConnection(physical, cache)
+        );
+    }
+
+    /**
+     * @return the number of prepareStatement calls served from a connection's statement cache.
+     */
+    public long getStatementCacheHitCount() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * @return the number of cacheable prepareStatement calls that had to prepare a new statement.
+     */
+    public long getStatementCacheMissCount() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * @return the number of connections currently borrowed from the pool.
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return the number of open connections waiting in the pool to be borrowed.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return the number of callers currently blocked waiting for a connection.
+     */
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    /**
+     * @return the number of physical connections currently open, borrowed or idle.
+     */
+    public int getTotalCount() {
+        return total.get();
+    }
+
+    /**
+     * @return the configured upper bound on physical connections.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of physical connections opened since the pool was created.
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * @return the number of connections closed by idle eviction.
+     */
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    /**
+     * @return the number of getConnection() calls that gave up waiting.
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "active=" + getActiveCount() +
+                ", idle=" + getIdleCount() +
+                ", waiting=" + getWaitingCount() +
+                ", total=" + getTotalCount() +
+                ", maxSize=" + maxSize +
+                '}';
+    }
+
+    /**
+     * An idle physical connection and the time it was returned to the pool.
+     */
+    private static class IdleConnection {
+        final Connection connection;
+        final long idleSince;
+
+        IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+
+    /**
+     * Proxy handler for a borrowed connection. close() hands the physical connection back to the pool exactly once;
+     * every other call is forwarded to the physical connection until then. prepareStatement is served from the
+     * connection's statement cache when possible, and every statement it creates is wrapped by SqlInstrumentation so
+     * its execution is timed.
+     */
+    private class PooledConnection implements InvocationHandler {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private volatile boolean closed;
+
+        PooledConnection(Connection physical, StatementCache statementCache) {
+            this.physical = physical;
+            this.statementCache = statementCache;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    if (closed) throw new SQLException("Connection has already been returned to the pool");
+                    Object result;
+                    if (statementCache != null && method.getName().equals("prepareStatement") && isCacheable(args)) {
+                        result = prepareCached(args);
+                    } else {
+                        try {
+                            result = method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                    if (result instanceof Statement && SqlInstrumentation.isEnabled()) {
+                        String sql = args != null && args[0] instanceof String ? (String) args[0] : null;
+                        return SqlInstrumentation.wrap((Statement) result, method.getReturnType(), sql, physical);
+                    }
+                    return result;
+            }
+        }
+
+        /**
+         * Only the prepareStatement overloads whose options are plain ints are cached; those taking column index or
+         * name arrays are rare and always prepared afresh.
+         */
+        private boolean isCacheable(Object[] args) {
+            for (int i = 1; i < args.length; i++) {
+                if (!(args[i] instanceof Integer)) return false;
+            }
+            return true;
+        }
+
+        private PreparedStatement prepareCached(Object[] args) throws SQLException {
+            List<Object> key = Arrays.asList(args);
+            PreparedStatement statement = statementCache.take(key);
+            if (statement != null && !statement.isClosed()) {
+                statementCacheHits.incrementAndGet();
+            } else {
+                statementCacheMisses.incrementAndGet();
+                statement = prepare(args);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new CachedStatement(this, key, statement)
+            );
+        }
+
+        private PreparedStatement prepare(Object[] args) throws SQLException {
+            String sql = (String) args[0];
+            switch (args.length) {
+                case 1:
+                    return physical.prepareStatement(sql);
+                case 2:
+                    return physical.prepareStatement(sql, (Integer) args[1]);
+                case 3:
+                    return physical.prepareStatement(sql, (Integer) args[1], (Integer) args[2]);
+                default:
+                    return physical.prepareStatement(sql, (Integer) args[1], (Integer) args[2], (Integer) args[3]);
+            }
+        }
+    }
+
+    /**
+     * Proxy handler for a statement leased from a connection's statement cache. close() clears its parameters and
+     * hands it back to the cache, unless the connection has already been returned to the pool, in which case it is
+     * really closed.
+     */
+    private static class CachedStatement implements InvocationHandler {
+        private final PooledConnection owner;
+        private final List<Object> key;
+        private final PreparedStatement statement;
+        private final int defaultFetchSize;
+        private boolean closed;
+
+        CachedStatement(PooledConnection owner, List<Object> key, PreparedStatement statement) throws SQLException {
+            this.owner = owner;
+            this.key = key;
+            this.statement = statement;
+            this.defaultFetchSize = statement.getFetchSize();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (owner.closed || !recycle()) statement.close();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (closed) throw new SQLException("Statement has already been closed");
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        /**
+         * Reset what a DAO may have changed and offer the statement back to the cache.
+         *
+         * @return false if the statement could not be reset and should be closed instead.
+         */
+        private boolean recycle() {
+            try {
+                if (statement.isClosed()) return false;
+                statement.clearParameters();
+                statement.clearBatch();
+                if (statement.getFetchSize() != defaultFetchSize) statement.setFetchSize(defaultFetchSize);
+                owner.statementCache.offer(key, statement);
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package Util;
 
-import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import org.h2.jdbcx.JdbcDataSource;
 import org.h2.tools.RunScript;
@@ -13,15 +14,19 @@ import org.h2.tools.RunScript;
  * our database. This class utilizes the singleton design pattern. We will be
  * utilizing an in-memory called h2database for the sql demos.
  *
- * DO NOT CHANGE ANYTHING IN THIS CLASS
+ * Connections come from a bounded ConnectionPool, so callers must close every connection they get from here.
  */
 public class ConnectionUtil {
 
 	/**
 	 * url will represent our connection string. Since this is an in-memory db, we
-	 * will represent a file location to store the data
+	 * will represent a file location to store the data. It can be pointed elsewhere with -Ddb.url, e.g. so the
+	 * benchmarks never touch the development database. With -Ddb.inMemorySnapshot=true the database is instead an
+	 * in-memory copy of the prebuilt DatabaseSnapshot, so booting replays no SQL.
 	 */
-	private static String url = "jdbc:h2:./h2/db;";
+	private static String url = Boolean.getBoolean("db.inMemorySnapshot")
+		? installSnapshot()
+		: System.getProperty("db.url", "jdbc:h2:./h2/db;");
 	/**
 	 * Default username for connecting to h2
 	 */
@@ -32,42 +37,75 @@ public class ConnectionUtil {
 	private static String password = "sa";
 
 	/**
-	 * DataSource for pooling. Pooling enables the creation of multiple connections when connections are closed.
+	 * DataSource the pool opens its physical connections from.
 	 */
-	private static JdbcDataSource pool = new JdbcDataSource();
+	private static JdbcDataSource dataSource = new JdbcDataSource();
+
+	/**
+	 * Bounded connection pool. Its size and timeouts can be tuned with the pool.* system properties, e.g.
+	 * -Dpool.maxSize=20. Connections returned by getConnection() must be closed to hand them back.
+	 */
+	private static ConnectionPool pool;
 
 	/**
 	 * static initialization block to establish credentials for DataSoure Pool
 	 */
 	static {
-		pool.setURL(url);
-		pool.setUser(username);
-		pool.setPassword(password);
+		dataSource.setURL(url);
+		dataSource.setUser(username);
+		dataSource.setPassword(password);
+		pool = new ConnectionPool(
+			dataSource,
+			Integer.getInteger("pool.minIdle", 2),
+			Integer.getInteger("pool.maxSize", 10),
+			Long.getLong("pool.acquireTimeoutMillis", 5000L),
+			Long.getLong("pool.idleTimeoutMillis", 60000L),
+			Integer.getInteger("pool.validationTimeoutSeconds", 1),
+			Integer.getInteger("pool.statementCacheSize", 32)
+		);
+	}
+
+	private static String installSnapshot() {
+		try {
+			return DatabaseSnapshot.install("socialmedia");
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not install the database snapshot", e);
+		}
 	}
 
 	/**
-	 * @return an active connection to the database
+	 * @return an active connection to the database, borrowed from the pool. Closing it returns it to the pool.
+	 * @throws DatabaseUnavailableException if no connection became free within the pool's acquisition timeout.
 	 */
 	public static Connection getConnection() {
 		try {
 			return pool.getConnection();
 		} catch (SQLException e) {
-			e.printStackTrace();
+			throw new DatabaseUnavailableException(e);
 		}
+	}
 
-		return null;
+	/**
+	 * @return the connection pool, for reading its active, idle and waiting counters.
+	 */
+	public static ConnectionPool getPool() {
+		return pool;
 	}
 
 	/**
 	 * For the purpose of testing, we will need to drop and recreate our database
-	 * tables to keep it consistent across all tests. The method will read the sql
-	 * file in resources. This will be performed before every test.
+	 * tables to keep it consistent across all tests. Every table is dropped, the
+	 * schema is rebuilt by SchemaMigrator and the test rows in SocialMedia.sql are
+	 * loaded. This will be performed before every test.
 	 */
 	public static void resetTestDatabase() {
-		try {
-			FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql");
-			RunScript.execute(getConnection(), sqlReader);
-		} catch (SQLException | FileNotFoundException e) {
+		try (Connection connection = getConnection();
+			 Statement statement = connection.createStatement();
+			 FileReader sqlReader = new FileReader("src/main/resources/SocialMedia.sql")) {
+			statement.execute("DROP ALL OBJECTS");
+			SchemaMigrator.migrate(connection);
+			RunScript.execute(connection, sqlReader);
+		} catch (SQLException | IOException e) {
 			e.printStackTrace();
 		}
 	}
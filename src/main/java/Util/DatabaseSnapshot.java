@@ -0,0 +1,96 @@
+package Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.h2.store.fs.FileUtils;
+
+/**
+ * A prebuilt, fully migrated H2 database file, used to boot an in-memory database without replaying any SQL.
+ *
+ * The build writes the snapshot to db/snapshot.mv.db on the classpath by running main(). At boot, install() copies its
+ * bytes into H2's in-memory file system (memFS), and H2 opens it like any database file. SchemaMigrator still runs
+ * afterwards, but finds every migration already applied. If the resource is missing, e.g. when running from an IDE
+ * that skipped the build step, the snapshot is built in memory on the spot instead.
+ */
+public class DatabaseSnapshot {
+
+    private static final String RESOURCE = "db/snapshot.mv.db";
+
+    private DatabaseSnapshot() {
+    }
+
+    /**
+     * Copy the snapshot into memFS under a database name.
+     *
+     * @param name the in-memory database name; an existing database of that name is replaced.
+     * @return the JDBC URL of the in-memory database.
+     * @throws IOException if the snapshot could not be read or built.
+     */
+    public static String install(String name) throws IOException {
+        byte[] snapshot = load();
+        String file = "memFS:" + name + ".mv.db";
+        FileUtils.delete(file);
+        try (OutputStream out = FileUtils.newOutputStream(file, false)) {
+            out.write(snapshot);
+        }
+        return "jdbc:h2:memFS:" + name;
+    }
+
+    /**
+     * @return the bytes of the snapshot on the classpath, or of a freshly built one if there is none.
+     * @throws IOException if the snapshot could not be read or built.
+     */
+    public static byte[] load() throws IOException {
+        try (InputStream in = DatabaseSnapshot.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (in != null) return in.readAllBytes();
+        }
+        return build();
+    }
+
+    /**
+     * Create an empty database in memFS, apply every migration, compact it and return its file.
+     *
+     * @return the database file's bytes.
+     * @throws IOException if the database could not be built.
+     */
+    public static byte[] build() throws IOException {
+        String name = "snapshot-build-" + System.nanoTime();
+        String file = "memFS:" + name + ".mv.db";
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:memFS:" + name);
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            SchemaMigrator.migrate(connection);
+            statement.execute("SHUTDOWN COMPACT");
+        } catch (SQLException e) {
+            throw new IOException("Could not build the database snapshot: " + e.getMessage(), e);
+        }
+        try (InputStream in = FileUtils.newInputStream(file)) {
+            return in.readAllBytes();
+        } finally {
+            FileUtils.delete(file);
+        }
+    }
+
+    /**
+     * Build step: write a fresh snapshot to the given path, normally target/classes/db/snapshot.mv.db.
+     *
+     * @param args the output path.
+     */
+    public static void main(String[] args) throws IOException {
+        Path out = Paths.get(args[0]);
+        Files.createDirectories(out.toAbsolutePath().getParent());
+        Files.write(out, build());
+    }
+}
@@ -0,0 +1,18 @@
+package Util;
+
+/**
+ * Thrown by ConnectionUtil.getConnection() when no pooled connection could be borrowed, typically because every
+ * connection stayed busy for the whole acquisition timeout. It is unchecked so that it passes through the DAOs'
+ * SQLException handlers; the controller answers it with 503 and Retry-After.
+ */
+public class DatabaseUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param cause the pool's failure.
+     */
+    public DatabaseUnavailableException(Throwable cause) {
+        super(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,110 @@
+package Util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size executor for blocking database or CPU-heavy work with a bounded queue. When the queue is full,
+ * submit() fails immediately with a RejectedExecutionException instead of letting work pile up, so callers can shed
+ * load while latency is still healthy.
+ *
+ * Queue depth, active thread and rejection counts are exposed for monitoring.
+ */
+public class DbExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param threads the number of worker threads, normally the connection pool's maximum size.
+     * @param queueCapacity how many tasks may wait for a worker before new ones are rejected.
+     */
+    public DbExecutor(int threads, int queueCapacity) {
+        this("db-executor", threads, queueCapacity);
+    }
+
+    /**
+     * @param name prefix for the worker thread names.
+     * @param threads the number of worker threads.
+     * @param queueCapacity how many tasks may wait for a worker before new ones are rejected.
+     */
+    public DbExecutor(String name, int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Run a task on a database worker.
+     *
+     * @param task the blocking work to run.
+     * @return a future completed when the task finishes, or completed exceptionally if it throws.
+     * @throws RejectedExecutionException if the queue is full or the executor has been shut down.
+     */
+    public CompletableFuture<Void> submit(Runnable task) {
+        try {
+            return CompletableFuture.runAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of tasks waiting for a worker.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of workers currently running a task.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return the number of tasks turned away because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of tasks that have finished running.
+     */
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * Stop accepting tasks. Tasks already queued still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "DbExecutor{" +
+                "active=" + getActiveCount() +
+                ", queued=" + getQueueDepth() +
+                ", rejected=" + getRejectedCount() +
+                ", completed=" + getCompletedCount() +
+                '}';
+    }
+}
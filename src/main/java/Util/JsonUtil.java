@@ -0,0 +1,153 @@
+package Util;
+
+import Model.Account;
+import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessageEvent;
+import Model.MessagePage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import io.javalin.json.JsonMapper;
+
+/**
+ * Holds the single ObjectMapper shared by the whole application, along with readers and writers for the model
+ * classes that are built once up front. ObjectReader and ObjectWriter are immutable and thread-safe, so every
+ * request reuses the same warm serializer caches instead of building a new ObjectMapper.
+ */
+public class JsonUtil {
+
+    /**
+     * The shared mapper. Configure it here only; readers and writers below are derived from it.
+     */
+    public static final ObjectMapper MAPPER = new ObjectMapper()
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+        .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    public static final ObjectReader MESSAGE_READER = MAPPER.readerFor(Message.class);
+    public static final ObjectReader ACCOUNT_READER = MAPPER.readerFor(Account.class);
+    public static final ObjectWriter MESSAGE_WRITER = MAPPER.writerFor(Message.class);
+    public static final ObjectWriter ACCOUNT_WRITER = MAPPER.writerFor(Account.class);
+    public static final ObjectWriter MESSAGE_LIST_WRITER = MAPPER.writerFor(new TypeReference<List<Message>>() {});
+    public static final ObjectWriter MESSAGE_PAGE_WRITER = MAPPER.writerFor(MessagePage.class);
+    public static final ObjectWriter BATCH_RESULT_LIST_WRITER =
+        MAPPER.writerFor(new TypeReference<List<MessageBatchResult>>() {});
+    public static final ObjectWriter MESSAGE_EVENT_WRITER = MAPPER.writerFor(MessageEvent.class);
+
+    private JsonUtil() {
+    }
+
+    /**
+     * Parse a Message directly from a request body stream, without first copying the body into a String.
+     *
+     * @param body the raw request body.
+     * @return the parsed message.
+     * @throws IOException if the body is not a valid JSON message.
+     */
+    public static Message readMessage(InputStream body) throws IOException {
+        return MESSAGE_READER.readValue(body);
+    }
+
+    /**
+     * Parse a JSON array of Messages directly from a request body stream, reading no further than one message past
+     * maxCount, so an oversized array is caught without parsing all of it.
+     *
+     * @param body the raw request body.
+     * @param maxCount the most messages the caller accepts.
+     * @return the parsed messages, maxCount + 1 of them if the array is longer than maxCount, or null if the body was
+     *         JSON null.
+     * @throws IOException if the body is not a valid JSON array of messages.
+     */
+    public static List<Message> readMessages(InputStream body, int maxCount) throws IOException {
+        try (JsonParser parser = MAPPER.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) return null;
+            if (token != JsonToken.START_ARRAY) {
+                throw MismatchedInputException.from(parser, List.class, "Expected a JSON array of messages");
+            }
+            List<Message> messages = new ArrayList<>();
+            while (messages.size() <= maxCount && (token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) throw MismatchedInputException.from(parser, List.class, "Unterminated array");
+                messages.add(MESSAGE_READER.readValue(parser));
+            }
+            return messages;
+        }
+    }
+
+    /**
+     * Parse an Account directly from a request body stream, without first copying the body into a String.
+     *
+     * @param body the raw request body.
+     * @return the parsed account.
+     * @throws IOException if the body is not a valid JSON account.
+     */
+    public static Account readAccount(InputStream body) throws IOException {
+        return ACCOUNT_READER.readValue(body);
+    }
+
+    /**
+     * Javalin JsonMapper backed by the shared ObjectMapper. Writers and readers are cached per type so that
+     * ctx.json() and ctx.bodyAsClass() never rebuild them.
+     */
+    public static class JavalinMapper implements JsonMapper {
+        private final ConcurrentHashMap<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+        public JavalinMapper() {
+            writers.put(Message.class, MESSAGE_WRITER);
+            writers.put(Account.class, ACCOUNT_WRITER);
+            readers.put(Message.class, MESSAGE_READER);
+            readers.put(Account.class, ACCOUNT_READER);
+        }
+
+        private ObjectWriter writerFor(Type type) {
+            return writers.computeIfAbsent(type, t -> MAPPER.writerFor(MAPPER.constructType(t)));
+        }
+
+        private ObjectReader readerFor(Type type) {
+            return readers.computeIfAbsent(type, t -> MAPPER.readerFor(MAPPER.constructType(t)));
+        }
+
+        @Override
+        public String toJsonString(Object obj, Type type) {
+            try {
+                return writerFor(type).writeValueAsString(obj);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        @Override
+        public <T> T fromJsonString(String json, Type targetType) {
+            try {
+                return readerFor(targetType).readValue(json);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        @Override
+        public <T> T fromJsonStream(InputStream json, Type targetType) {
+            try {
+                return readerFor(targetType).readValue(json);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+}
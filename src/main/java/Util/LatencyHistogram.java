@@ -0,0 +1,152 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram over nanosecond values. Buckets are log-linear: every power of two is split into 16
+ * equal sub-buckets, so any recorded value is reported to within about 6% while the whole range up to Long.MAX_VALUE
+ * fits in under a thousand counters.
+ *
+ * record() is a single atomic increment plus two adder updates, cheap enough to call on every request from any
+ * number of threads. Percentiles are read from the counters as they stand, without stopping writers.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param nanos the latency to record; negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Start timing something; the elapsed time is recorded when the timer is stopped, normally in a finally block.
+     *
+     * @return a running timer.
+     */
+    public Timer time() {
+        return new Timer(this, System.nanoTime());
+    }
+
+    /**
+     * @return the number of values recorded.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of every value recorded, in nanoseconds.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return the largest value recorded, in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the values recorded, in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * @param percentile a percentile between 0 and 100, e.g. 99.9.
+     * @return the upper bound of the bucket holding that percentile, in nanoseconds, never more than getMax(); 0 if
+     *         nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(bucketUpperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Cumulative count for exporting to bucketed formats. A bucket straddling the limit is counted if its lower bound
+     * is within it, so the result may include values up to 6% over the limit.
+     *
+     * @param nanos an upper limit, in nanoseconds.
+     * @return the number of recorded values at or below nanos.
+     */
+    public long getCountAtOrBelow(long nanos) {
+        if (nanos < 0) return 0;
+        int last = bucketIndex(nanos);
+        long seen = 0;
+        for (int i = 0; i <= last; i++) seen += counts.get(i);
+        return seen;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + getCount() +
+                ", p50=" + getValueAtPercentile(50) +
+                ", p99=" + getValueAtPercentile(99) +
+                ", max=" + getMax() +
+                '}';
+    }
+
+    /**
+     * Records the time between its creation and stop() into its histogram.
+     */
+    public static class Timer {
+        private final LatencyHistogram histogram;
+        private final long start;
+
+        Timer(LatencyHistogram histogram, long start) {
+            this.histogram = histogram;
+            this.start = start;
+        }
+
+        /**
+         * Record the time elapsed since the timer was started.
+         */
+        public void stop() {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package Util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe least-recently-used cache. Entries are spread over independently locked segments, each an
+ * access-ordered LinkedHashMap, so concurrent readers of different keys rarely contend. When a segment is full its
+ * least recently used entry is evicted.
+ *
+ * Hit, miss and eviction counts are kept in LongAdders so reading them never slows down the cache itself.
+ *
+ * @param <K> key type.
+ * @param <V> value type.
+ */
+public class LruCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize the maximum number of entries held across the whole cache.
+     */
+    public LruCache(int maxSize) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be at least 1");
+        this.maxSize = maxSize;
+        int segmentCount = Math.min(SEGMENTS, maxSize);
+        int perSegment = (maxSize + segmentCount - 1) / segmentCount;
+        @SuppressWarnings("unchecked")
+        Segment<K, V>[] created = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            created[i] = new Segment<>(perSegment, evictions);
+        }
+        segments = created;
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    /**
+     * @param key the key to look up.
+     * @return the cached value, or null if the key is not cached.
+     */
+    public V get(K key) {
+        V value = segmentFor(key).get(key);
+        if (value != null) hits.increment();
+        else misses.increment();
+        return value;
+    }
+
+    /**
+     * Read-through lookup. On a miss the loader is called outside of any lock and its result is cached, unless the
+     * key was invalidated while the loader ran, in which case the possibly stale result is returned but not cached.
+     *
+     * @param key the key to look up.
+     * @param loader produces the value on a miss; may return null, which is not cached.
+     * @return the cached or freshly loaded value.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Segment<K, V> segment = segmentFor(key);
+        V value = segment.get(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        long generation = segment.generation();
+        value = loader.apply(key);
+        if (value != null) segment.putIfGeneration(key, value, generation);
+        return value;
+    }
+
+    /**
+     * @param key the key to cache under.
+     * @param value the value to cache.
+     */
+    public void put(K key, V value) {
+        segmentFor(key).put(key, value);
+    }
+
+    /**
+     * Cache a value unless the key already has one.
+     *
+     * @param key the key to cache under.
+     * @param value the value to cache.
+     * @return the value already cached, or null if value was cached.
+     */
+    public V putIfAbsent(K key, V value) {
+        return segmentFor(key).putIfAbsent(key, value);
+    }
+
+    /**
+     * Remove a key so the next read goes to the loader. Any load of the same segment already in flight will not be
+     * cached.
+     *
+     * @param key the key to remove.
+     */
+    public void invalidate(K key) {
+        segmentFor(key).invalidate(key);
+    }
+
+    /**
+     * Remove every entry.
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) segment.clear();
+    }
+
+    /**
+     * @return the number of entries currently cached.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) size += segment.size();
+        return size;
+    }
+
+    /**
+     * @return the maximum number of entries the cache holds.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of lookups that found a cached value.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that did not find a cached value.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries evicted to stay within maxSize.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "LruCache{" +
+                "size=" + size() +
+                ", maxSize=" + maxSize +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() +
+                '}';
+    }
+
+    /**
+     * One independently locked slice of the cache. The generation counter moves on every invalidation so that
+     * read-through loads which raced with a write can be detected and dropped.
+     */
+    private static class Segment<K, V> {
+        private final LinkedHashMap<K, V> map;
+        private long generation;
+
+        Segment(int capacity, LongAdder evictions) {
+            map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized V get(K key) {
+            return map.get(key);
+        }
+
+        synchronized void put(K key, V value) {
+            map.put(key, value);
+        }
+
+        synchronized V putIfAbsent(K key, V value) {
+            V existing = map.get(key);
+            if (existing == null) map.put(key, value);
+            return existing;
+        }
+
+        synchronized long generation() {
+            return generation;
+        }
+
+        synchronized void putIfGeneration(K key, V value, long expected) {
+            if (generation == expected) map.put(key, value);
+        }
+
+        synchronized void invalidate(K key) {
+            generation++;
+            map.remove(key);
+        }
+
+        synchronized void clear() {
+            generation++;
+            map.clear();
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+    }
+}
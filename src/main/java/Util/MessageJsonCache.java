@@ -0,0 +1,166 @@
+package Util;
+
+import Model.Message;
+import Model.MessagePage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * A cache of each message's JSON encoding as bytes, so a message read many times is serialized once. Lists and pages
+ * of messages are assembled by copying the cached fragments between brackets and commas, which gives exactly the bytes
+ * JsonUtil's writers would.
+ *
+ * A fragment records the fields it was made from and is used only for a message with the same fields. A stale
+ * fragment, left behind by a write racing a read, is therefore never served; it is replaced on its next use.
+ * MessageService invalidates fragments on update and delete, so they do not linger either.
+ */
+public class MessageJsonCache {
+
+    private static final byte[] ITEMS_START = "{\"items\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEXT_FIELD = "],\"next\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final LruCache<Integer, Fragment> fragments;
+
+    /**
+     * @param maxSize the number of messages whose JSON is held.
+     */
+    public MessageJsonCache(int maxSize) {
+        fragments = new LruCache<>(maxSize);
+    }
+
+    /**
+     * @param message a message.
+     * @return the message's JSON encoding. The array is shared and must not be modified.
+     */
+    public byte[] message(Message message) {
+        Fragment fragment = fragments.get(message.getMessage_id());
+        if (fragment != null && fragment.encodes(message)) return fragment.json;
+        fragment = new Fragment(message);
+        fragments.put(message.getMessage_id(), fragment);
+        return fragment.json;
+    }
+
+    /**
+     * @param messages some messages.
+     * @return the JSON array of the messages.
+     */
+    public byte[] list(List<Message> messages) {
+        byte[][] parts = new byte[messages.size()][];
+        int length = 2 + Math.max(0, parts.length - 1);
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = message(messages.get(i));
+            length += parts[i].length;
+        }
+        byte[] json = new byte[length];
+        json[0] = '[';
+        int end = join(parts, json, 1);
+        json[end] = ']';
+        return json;
+    }
+
+    /**
+     * @param page a page of messages.
+     * @return the JSON object of the page.
+     */
+    public byte[] page(MessagePage page) {
+        List<Message> items = page.getItems();
+        byte[] next;
+        try {
+            next = page.getNext() != null ? JsonUtil.MAPPER.writeValueAsBytes(page.getNext()) : NULL;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+        byte[][] parts = new byte[items.size()][];
+        int length = ITEMS_START.length + Math.max(0, parts.length - 1) + NEXT_FIELD.length + next.length + 1;
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = message(items.get(i));
+            length += parts[i].length;
+        }
+        byte[] json = new byte[length];
+        System.arraycopy(ITEMS_START, 0, json, 0, ITEMS_START.length);
+        int end = join(parts, json, ITEMS_START.length);
+        System.arraycopy(NEXT_FIELD, 0, json, end, NEXT_FIELD.length);
+        System.arraycopy(next, 0, json, end + NEXT_FIELD.length, next.length);
+        json[json.length - 1] = '}';
+        return json;
+    }
+
+    /**
+     * Copy parts into json separated by commas, starting at offset.
+     *
+     * @return the offset just after the last part.
+     */
+    private static int join(byte[][] parts, byte[] json, int offset) {
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) json[offset++] = ',';
+            System.arraycopy(parts[i], 0, json, offset, parts[i].length);
+            offset += parts[i].length;
+        }
+        return offset;
+    }
+
+    /**
+     * Drop a message's JSON, once the message has been updated or deleted.
+     *
+     * @param message_id the ID of the message.
+     */
+    public void invalidate(int message_id) {
+        fragments.invalidate(message_id);
+    }
+
+    /**
+     * @return the underlying cache, for reading its size and hit, miss and eviction counters.
+     */
+    public LruCache<Integer, Fragment> getCache() {
+        return fragments;
+    }
+
+    /**
+     * @param json a response body.
+     * @return the body gzip-compressed.
+     */
+    public static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, 8192)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * One message's JSON and the fields it encodes.
+     */
+    public static final class Fragment {
+        final int posted_by;
+        final String message_text;
+        final long time_posted_epoch;
+        final byte[] json;
+
+        Fragment(Message message) {
+            posted_by = message.getPosted_by();
+            message_text = message.getMessage_text();
+            time_posted_epoch = message.getTime_posted_epoch();
+            try {
+                json = JsonUtil.MESSAGE_WRITER.writeValueAsBytes(message);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        boolean encodes(Message message) {
+            return posted_by == message.getPosted_by()
+                && time_posted_epoch == message.getTime_posted_epoch()
+                && Objects.equals(message_text, message.getMessage_text());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide metrics registry, exported in the Prometheus text exposition format by scrape().
+ *
+ * Counters are LongAdders and histograms are LatencyHistograms, so recording never takes a lock. Looking a series up
+ * by name and labels is a ConcurrentHashMap read; hot paths that always record the same series should look it up once
+ * and keep the reference. Gauges are read from a supplier at scrape time, so they cost nothing between scrapes.
+ */
+public class Metrics {
+
+    /**
+     * Histogram bucket bounds, in seconds.
+     */
+    private static final double[] BUCKETS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @param name the metric name, e.g. http_requests_total.
+     * @param help a one-line description.
+     * @param labels alternating label names and values.
+     * @return the counter for this name and label set, created on first use.
+     */
+    public static LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) family(name, help, "counter").series.computeIfAbsent(labelString(labels),
+                key -> new LongAdder());
+    }
+
+    /**
+     * @param name the metric name, e.g. http_request_duration_seconds.
+     * @param help a one-line description.
+     * @param labels alternating label names and values.
+     * @return the histogram for this name and label set, created on first use. Values are recorded in nanoseconds and
+     *         exported in seconds.
+     */
+    public static LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, "histogram").series.computeIfAbsent(labelString(labels),
+                key -> new LatencyHistogram());
+    }
+
+    /**
+     * @param dao the DAO class name, e.g. MessageDAO.
+     * @param method the DAO method name.
+     * @return the call-duration histogram for that DAO method.
+     */
+    public static LatencyHistogram daoTimer(String dao, String method) {
+        return histogram("dao_call_duration_seconds", "Time spent in DAO methods, including borrowing a connection.",
+                "dao", dao, "method", method);
+    }
+
+    /**
+     * Register a gauge, replacing any earlier gauge with the same name and labels.
+     *
+     * @param name the metric name, e.g. db_pool_connections_active.
+     * @param help a one-line description.
+     * @param value read on every scrape.
+     * @param labels alternating label names and values.
+     */
+    public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").series.put(labelString(labels), value);
+    }
+
+    /**
+     * Register a counter whose value is kept elsewhere, e.g. by the connection pool, replacing any earlier one with the
+     * same name and labels.
+     *
+     * @param name the metric name, e.g. db_pool_timeouts_total.
+     * @param help a one-line description.
+     * @param value read on every scrape; must never decrease.
+     * @param labels alternating label names and values.
+     */
+    public static void counterFunction(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "counter").series.put(labelString(labels), value);
+    }
+
+    /**
+     * @return every registered metric in the Prometheus text exposition format, version 0.0.4.
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        for (Family family : new TreeMap<>(families).values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> series : new TreeMap<>(family.series).entrySet()) {
+                Object value = series.getValue();
+                if (value instanceof LatencyHistogram) {
+                    appendHistogram(out, family.name, series.getKey(), (LatencyHistogram) value);
+                } else if (value instanceof LongAdder) {
+                    appendSample(out, family.name, series.getKey(), ((LongAdder) value).sum());
+                } else {
+                    appendSample(out, family.name, series.getKey(), ((DoubleSupplier) value).getAsDouble());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void appendHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        for (double bound : BUCKETS) {
+            long nanos = (long) (bound * TimeUnit.SECONDS.toNanos(1));
+            appendSample(out, name + "_bucket", withLabel(labels, "le", format(bound)),
+                    histogram.getCountAtOrBelow(nanos));
+        }
+        // Count from the buckets rather than getCount() so +Inf and _count agree within one scrape.
+        long count = histogram.getCountAtOrBelow(Long.MAX_VALUE);
+        appendSample(out, name + "_bucket", withLabel(labels, "le", "+Inf"), count);
+        appendSample(out, name + "_sum", labels, histogram.getSum() / 1e9);
+        appendSample(out, name + "_count", labels, count);
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + '"';
+        return labels.isEmpty() ? label : labels + ',' + label;
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = families.get(name);
+        if (family == null) family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labelString(String... labels) {
+        if (labels.length % 2 != 0) throw new IllegalArgumentException("labels must be name/value pairs");
+        if (labels.length == 0) return "";
+        List<String> pairs = new ArrayList<>(labels.length / 2);
+        for (int i = 0; i < labels.length; i += 2) {
+            pairs.add(labels[i] + "=\"" + escape(labels[i + 1]) + '"');
+        }
+        return String.join(",", pairs);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * All series sharing a metric name, keyed by their rendered label set. Each value is a LongAdder, a
+     * LatencyHistogram or a DoubleSupplier.
+     */
+    private static class Family {
+        final String name;
+        final String help;
+        final String type;
+        final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package Util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The http_request_duration_seconds histogram and http_requests_total counters of one method and route pattern. Each
+ * series is looked up from Metrics once and kept, so recording a request reads two maps and an array rather than
+ * building label strings.
+ */
+public class RequestMetrics {
+
+    private static final int MAX_STATUS = 599;
+
+    private static final Map<String, Map<String, RequestMetrics>> byRoute = new ConcurrentHashMap<>();
+
+    private final String method;
+    private final String route;
+    private final LatencyHistogram duration;
+    private final AtomicReferenceArray<LongAdder> byStatus = new AtomicReferenceArray<>(MAX_STATUS + 1);
+
+    private RequestMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+        duration = Metrics.histogram("http_request_duration_seconds",
+                "Time from receiving a request to finishing its handler.", "method", method, "route", route);
+    }
+
+    /**
+     * @param method the request method, e.g. GET.
+     * @param route the route pattern the request matched, e.g. /messages/{message_id}.
+     * @return the metrics of that method and route, created on first use.
+     */
+    public static RequestMetrics of(String method, String route) {
+        Map<String, RequestMetrics> byMethod = byRoute.computeIfAbsent(route, key -> new ConcurrentHashMap<>());
+        RequestMetrics metrics = byMethod.get(method);
+        if (metrics == null) metrics = byMethod.computeIfAbsent(method, key -> new RequestMetrics(key, route));
+        return metrics;
+    }
+
+    /**
+     * @param nanos how long the request took.
+     * @param status the response status code.
+     */
+    public void record(long nanos, int status) {
+        duration.record(nanos);
+        if (status < 0 || status > MAX_STATUS) {
+            requests(status).increment();
+            return;
+        }
+        LongAdder counter = byStatus.get(status);
+        if (counter == null) {
+            counter = requests(status);
+            byStatus.set(status, counter);
+        }
+        counter.increment();
+    }
+
+    private LongAdder requests(int status) {
+        return Metrics.counter("http_requests_total", "Requests handled, by status code.",
+                "method", method, "route", route, "status", Integer.toString(status));
+    }
+}
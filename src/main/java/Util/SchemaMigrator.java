@@ -0,0 +1,156 @@
+package Util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.h2.tools.RunScript;
+
+/**
+ * Brings the database schema up to date by applying forward-only migration scripts from db/migration on the
+ * classpath. Each applied script is recorded in the schema_version table with a checksum, so a boot only runs the
+ * scripts it has not seen and never drops or recreates existing tables.
+ *
+ * Scripts are named V&lt;version&gt;__&lt;description&gt;.sql and listed in MIGRATIONS in the order they apply.
+ * A script must never change once released; add a new version instead. Boot fails if an applied script's checksum
+ * no longer matches.
+ *
+ * A script and its schema_version row are not atomic: H2 commits every DDL statement as it runs, so a script that
+ * fails partway leaves its earlier statements applied and no version row. The script then runs again from the top on
+ * the next boot, which is why every script must be idempotent, e.g. CREATE TABLE IF NOT EXISTS and CREATE INDEX IF
+ * NOT EXISTS.
+ */
+public class SchemaMigrator {
+
+    private static final String LOCATION = "db/migration/";
+
+    /**
+     * Every migration, oldest first.
+     */
+    private static final String[] MIGRATIONS = {
+        "V1__create_tables.sql",
+        "V2__message_indexes.sql",
+        "V3__follows.sql",
+    };
+
+    private static final Pattern NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Apply pending migrations using a pooled connection.
+     *
+     * @return the number of migrations applied.
+     * @throws IllegalStateException if a migration fails or an applied one has been modified.
+     */
+    public static int migrate() {
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            return migrate(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Schema migration failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Apply pending migrations on the given connection, recording each in schema_version once its script has run.
+     * Only a script's data changes roll back if it fails; see the class comment.
+     *
+     * @param connection an open connection, left in auto-commit mode.
+     * @return the number of migrations applied.
+     * @throws IllegalStateException if a migration fails or an applied one has been modified.
+     */
+    public static synchronized int migrate(Connection connection) {
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                        + "version int primary key, "
+                        + "description varchar(255), "
+                        + "checksum bigint, "
+                        + "installed_on timestamp default current_timestamp)");
+            }
+            Map<Integer, Long> applied = appliedChecksums(connection);
+
+            int count = 0;
+            for (String name : MIGRATIONS) {
+                Matcher matcher = NAME.matcher(name);
+                if (!matcher.matches()) throw new IllegalStateException("Badly named migration: " + name);
+                int version = Integer.parseInt(matcher.group(1));
+                String script = load(name);
+                long checksum = checksum(script);
+
+                Long appliedChecksum = applied.get(version);
+                if (appliedChecksum != null) {
+                    if (appliedChecksum != checksum) {
+                        throw new IllegalStateException("Migration " + name + " has changed since it was applied");
+                    }
+                    continue;
+                }
+                apply(connection, version, matcher.group(2).replace('_', ' '), script, checksum);
+                count++;
+            }
+            return count;
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Schema migration failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static void apply(Connection connection, int version, String description, String script, long checksum)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            RunScript.execute(connection, new StringReader(script));
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+                ps.setInt(1, version);
+                ps.setString(2, description);
+                ps.setLong(3, checksum);
+                ps.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static Map<Integer, Long> appliedChecksums(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT version, checksum FROM schema_version");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private static String load(String name) throws IOException {
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + name)) {
+            if (in == null) throw new IOException("Missing migration " + LOCATION + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * CRC32 of the script with line endings normalized, so a checkout with different line endings still matches.
+     */
+    private static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
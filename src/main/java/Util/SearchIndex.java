@@ -0,0 +1,304 @@
+package Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory inverted index over short texts keyed by int document IDs, ranked with BM25.
+ *
+ * Text is split into lower-cased runs of letters and digits. Each term maps to a posting list of (document, term
+ * frequency, document length) entries held in parallel int arrays, so an entry costs 12 bytes and no boxing. A query
+ * scores only the documents in its terms' posting lists and keeps the best K in a bounded heap, so its cost grows
+ * with how common the query terms are, not with the number of documents.
+ *
+ * A removed ID is remembered as a tombstone, and a later add() or update() of it is ignored. Message IDs are never
+ * reused, so this keeps a deleted message out of the index even when its deletion overtakes an update or insert of
+ * the same message on its way in. Ordering between two updates is left to the caller.
+ *
+ * Searches share a read lock and run concurrently; add(), update() and remove() take the write lock. Taking a
+ * document out scans each of its terms' posting lists for its ID, so an update or delete of a document holding a very
+ * common term costs time in proportion to how many documents share that term, and blocks searches meanwhile. That is
+ * cheap for short messages over ordinary vocabularies; a corpus dominated by a few huge posting lists would want
+ * tombstones swept in bulk instead.
+ */
+public class SearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    /**
+     * The distinct terms and length of every indexed document, needed to take it back out of the posting lists.
+     */
+    private final Map<Integer, Document> documents = new HashMap<>();
+    /**
+     * IDs removed from the index, which add() will not index again.
+     */
+    private final BitSet removed = new BitSet();
+    private long totalLength;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Index a document, replacing any earlier text indexed under the same ID. Does nothing if the ID was removed.
+     *
+     * @param id the document ID.
+     * @param text the document text; null is indexed as empty.
+     */
+    public void add(int id, String text) {
+        List<String> tokens = tokenize(text);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            if (id >= 0 && removed.get(id)) return;
+            removeLocked(id);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new Postings())
+                        .add(id, entry.getValue(), tokens.size());
+            }
+            documents.put(id, new Document(frequencies.keySet().toArray(new String[0]), tokens.size()));
+            totalLength += tokens.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-index a document whose text changed. Does nothing if the ID was removed.
+     *
+     * @param id the document ID.
+     * @param text the new text.
+     */
+    public void update(int id, String text) {
+        add(id, text);
+    }
+
+    /**
+     * Remove a document from the index for good: the ID is tombstoned, so it is not indexed again.
+     *
+     * @param id the document ID, which need not be indexed yet.
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (id >= 0) removed.set(id);
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(int id) {
+        Document document = documents.remove(id);
+        if (document == null) return;
+        totalLength -= document.length;
+        for (String term : document.terms) {
+            Postings list = postings.get(term);
+            if (list != null && list.remove(id) && list.size == 0) postings.remove(term);
+        }
+    }
+
+    /**
+     * Find the documents best matching a query. A document matches if it contains any query term.
+     *
+     * @param query free text, tokenized like indexed text.
+     * @param limit the most results to return.
+     * @return matching document IDs, best first; ties go to the higher, usually newer, ID.
+     */
+    public List<Integer> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty() || limit < 1) return new ArrayList<>();
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1);
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) return new ArrayList<>();
+            double averageLength = Math.max(1.0, (double) totalLength / documentCount);
+            if (terms.size() == 1) {
+                // One term: each posting is a final score, so skip the accumulator and go straight to the heap.
+                Postings list = postings.get(terms.iterator().next());
+                if (list == null) return new ArrayList<>();
+                double idf = idf(documentCount, list.size);
+                for (int i = 0; i < list.size; i++) {
+                    offer(best, limit, list.ids[i], score(idf, list.frequencies[i], list.lengths[i], averageLength));
+                }
+            } else {
+                Map<Integer, double[]> scores = new HashMap<>();
+                for (String term : terms) {
+                    Postings list = postings.get(term);
+                    if (list == null) continue;
+                    double idf = idf(documentCount, list.size);
+                    for (int i = 0; i < list.size; i++) {
+                        double score = score(idf, list.frequencies[i], list.lengths[i], averageLength);
+                        scores.computeIfAbsent(list.ids[i], id -> new double[1])[0] += score;
+                    }
+                }
+                for (Map.Entry<Integer, double[]> entry : scores.entrySet()) {
+                    offer(best, limit, entry.getKey(), entry.getValue()[0]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Integer[] ids = new Integer[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = best.poll().id;
+        }
+        return Arrays.asList(ids);
+    }
+
+    private static double idf(int documentCount, int documentFrequency) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double score(double idf, int frequency, int length, double averageLength) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    /**
+     * Keep the best limit hits: the heap's head is the worst one kept, dropped when a better hit arrives.
+     */
+    private static void offer(PriorityQueue<Hit> best, int limit, int id, double score) {
+        if (best.size() < limit) {
+            best.offer(new Hit(id, score));
+        } else if (best.peek().compareTo(id, score) < 0) {
+            best.poll();
+            best.offer(new Hit(id, score));
+        }
+    }
+
+    /**
+     * @return the number of indexed documents.
+     */
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct terms in the index.
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Split text into runs of letters and digits, lower-cased independently of the default locale, each cut to at
+     * most 64 characters.
+     *
+     * @param text the text to split; may be null.
+     * @return the tokens in order, including repeats.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) i++;
+            if (i > start) {
+                tokens.add(text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)).toLowerCase(Locale.ROOT));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * An unordered posting list: document IDs and their term frequencies in parallel arrays.
+     */
+    private static class Postings {
+        int[] ids = new int[4];
+        int[] frequencies = new int[4];
+        int[] lengths = new int[4];
+        int size;
+
+        void add(int id, int frequency, int length) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            ids[size] = id;
+            frequencies[size] = frequency;
+            lengths[size] = length;
+            size++;
+        }
+
+        /**
+         * Remove a document by moving the last entry into its slot. A linear scan, since the list is unordered.
+         */
+        boolean remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    frequencies[i] = frequencies[size];
+                    lengths[i] = lengths[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A scored document. Orders worst first: lower score, then lower ID.
+     */
+    private static class Hit implements Comparable<Hit> {
+        final int id;
+        final double score;
+
+        Hit(int id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        int compareTo(int otherId, double otherScore) {
+            int byScore = Double.compare(score, otherScore);
+            return byScore != 0 ? byScore : Integer.compare(id, otherId);
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            return compareTo(other.id, other.score);
+        }
+    }
+
+    /**
+     * What the index needs to remember about a document: its distinct terms and its length in tokens.
+     */
+    private static class Document {
+        final String[] terms;
+        final int length;
+
+        Document(String[] terms, int length) {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+}
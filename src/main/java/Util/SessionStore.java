@@ -0,0 +1,111 @@
+package Util;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory store of login sessions. A session is identified by an opaque, unguessable token (256 random bits,
+ * base64url) and resolves to an account ID with a single ConcurrentHashMap read, so authenticated requests never
+ * touch the database to find out who is calling.
+ *
+ * Sessions expire a fixed time after login. Expired sessions are rejected on lookup and swept by a housekeeping
+ * thread. Sessions do not survive a restart.
+ */
+public class SessionStore {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final long ttlMillis;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService housekeeper;
+
+    /**
+     * @param ttlMillis how long a session stays valid after it is created.
+     */
+    public SessionStore(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-store-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(ttlMillis, TimeUnit.MINUTES.toMillis(1)));
+        housekeeper.scheduleWithFixedDelay(this::removeExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start a session.
+     *
+     * @param account_id the account that logged in.
+     * @return the new session's token.
+     */
+    public String create(int account_id) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(account_id, System.currentTimeMillis() + ttlMillis));
+        return token;
+    }
+
+    /**
+     * @param token a session token, may be null.
+     * @return the account ID of the session, or null if the token is unknown or has expired.
+     */
+    public Integer resolve(String token) {
+        if (token == null) return null;
+        Session session = sessions.get(token);
+        if (session == null) return null;
+        if (session.expiresAt <= System.currentTimeMillis()) {
+            sessions.remove(token, session);
+            return null;
+        }
+        return session.account_id;
+    }
+
+    /**
+     * End a session.
+     *
+     * @param token the session token.
+     */
+    public void invalidate(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    /**
+     * @return the number of sessions held, including expired ones not yet swept.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Stop the housekeeping thread. Sessions already issued can still be resolved.
+     */
+    public void shutdown() {
+        housekeeper.shutdownNow();
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> session.expiresAt <= now);
+    }
+
+    /**
+     * The account a token belongs to and when it stops being valid.
+     */
+    private static class Session {
+        final int account_id;
+        final long expiresAt;
+
+        Session(int account_id, long expiresAt) {
+            this.account_id = account_id;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package Util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times every JDBC statement run through a pooled connection. ConnectionPool passes each Statement it creates to
+ * wrap(), which returns a proxy that records execute calls into a per-SQL histogram and error counter exported by
+ * /metrics. A query is timed until its ResultSet is returned, not until the rows have been read.
+ *
+ * Prepared statements are labelled by their SQL. Plain Statements carry their values inline as literals, so they all
+ * share the one label UNPREPARED; labelling each by its text would add a series, and a map entry, per distinct value.
+ *
+ * Statements slower than db.slowQueryMillis (default 100) are written to the "sql.slow" log with the shape of their
+ * bind parameters, e.g. [Int, String(14)], never their values; a plain Statement is logged as UNPREPARED for the
+ * same reason. With -Ddb.slowQueryExplain=true the log entry also carries H2's EXPLAIN plan, captured on the same
+ * connection with the same parameters, at most once a minute per statement. Instrumentation can be switched off with
+ * -Ddb.instrumentation=false.
+ */
+public class SqlInstrumentation {
+
+    private static final Logger slowLog = LoggerFactory.getLogger("sql.slow");
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("db.instrumentation", "true"));
+    /**
+     * Label and slow-log text of every plain Statement.
+     */
+    public static final String UNPREPARED = "<unprepared>";
+
+    private static volatile long slowQueryNanos =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("db.slowQueryMillis", 100));
+    private static volatile boolean explainSlowQueries = Boolean.getBoolean("db.slowQueryExplain");
+    private static final long EXPLAIN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * Metrics per SQL string, so preparing a statement costs one map read rather than building label strings.
+     */
+    private static final Map<String, SqlStats> statsBySql = new ConcurrentHashMap<>();
+    private static final Map<String, Long> lastExplained = new ConcurrentHashMap<>();
+
+    private SqlInstrumentation() {
+    }
+
+    /**
+     * @return false if instrumentation was switched off with -Ddb.instrumentation=false.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Change the slow-query threshold set by -Ddb.slowQueryMillis.
+     *
+     * @param millis statements taking at least this long are logged; 0 logs every statement.
+     */
+    public static void setSlowQueryMillis(long millis) {
+        slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Switch the EXPLAIN capture set by -Ddb.slowQueryExplain on or off.
+     *
+     * @param explain true to log the plan of slow statements.
+     */
+    public static void setSlowQueryExplain(boolean explain) {
+        explainSlowQueries = explain;
+    }
+
+    /**
+     * @param statement a statement just created by the physical connection.
+     * @param type the interface the statement was created as: Statement, PreparedStatement or CallableStatement.
+     * @param sql the SQL it was prepared with, or null for a plain Statement.
+     * @param physical the connection it belongs to, used to run EXPLAIN.
+     * @return a proxy implementing type which times every execute call.
+     */
+    public static Statement wrap(Statement statement, Class<?> type, String sql, Connection physical) {
+        return (Statement) Proxy.newProxyInstance(
+            SqlInstrumentation.class.getClassLoader(),
+            new Class<?>[] { type },
+            new InstrumentedStatement(statement, sql, physical)
+        );
+    }
+
+    /**
+     * @param sql SQL as passed to JDBC; statements differing only in whitespace share one series.
+     */
+    private static SqlStats stats(String sql) {
+        SqlStats stats = statsBySql.get(sql);
+        if (stats == null) stats = statsBySql.computeIfAbsent(sql, key -> new SqlStats(template(key)));
+        return stats;
+    }
+
+    /**
+     * Strip the trailing semicolon and collapse whitespace so the same statement always maps to the same series.
+     */
+    private static String template(String sql) {
+        String template = sql.trim().replaceAll("\\s+", " ");
+        return template.endsWith(";") ? template.substring(0, template.length() - 1).trim() : template;
+    }
+
+    private static void logSlow(String sql, long nanos, String parameters, int batchSize, String plan) {
+        double millis = nanos / 1_000_000.0;
+        String batch = batchSize > 0 ? " batch=" + batchSize : "";
+        if (plan == null) {
+            slowLog.warn("{} ms: {} params={}{}", String.format("%.1f", millis), sql, parameters, batch);
+        } else {
+            slowLog.warn("{} ms: {} params={}{}\n{}", String.format("%.1f", millis), sql, parameters, batch, plan);
+        }
+    }
+
+    /**
+     * @return true if this statement's plan has not been captured within the last EXPLAIN_INTERVAL_NANOS.
+     */
+    private static boolean claimExplain(String sql) {
+        long now = System.nanoTime();
+        Long last = lastExplained.putIfAbsent(sql, now);
+        return last == null || (now - last >= EXPLAIN_INTERVAL_NANOS && lastExplained.replace(sql, last, now));
+    }
+
+    private static boolean isExplainable(String sql) {
+        String verb = sql.length() >= 6 ? sql.substring(0, 6).toUpperCase() : "";
+        return verb.equals("SELECT") || verb.equals("UPDATE") || verb.equals("DELETE") || verb.equals("INSERT");
+    }
+
+    /**
+     * Histogram and error counter for one SQL template.
+     */
+    private static class SqlStats {
+        final String sql;
+        final LatencyHistogram duration;
+        final LongAdder errors;
+
+        SqlStats(String sql) {
+            this.sql = sql;
+            duration = Metrics.histogram("db_statement_duration_seconds",
+                    "Time to execute a SQL statement, until its result set or update count is returned.", "sql", sql);
+            errors = Metrics.counter("db_statement_errors_total", "SQL statements that threw.", "sql", sql);
+        }
+    }
+
+    /**
+     * A bind-parameter setter call, kept so it can be described in the slow log and replayed onto EXPLAIN.
+     */
+    private static class Parameter {
+        final Method setter;
+        final Object[] args;
+
+        Parameter(Method setter, Object[] args) {
+            this.setter = setter;
+            this.args = args;
+        }
+
+        /**
+         * @return the parameter's type as set, e.g. Int or String(14); never its value.
+         */
+        String shape() {
+            Object value = args[1];
+            String type = setter.getName().substring(3);
+            if (value == null || type.equals("Null")) return "Null";
+            if (value instanceof String) return type + "(" + ((String) value).length() + ")";
+            if (type.equals("Object")) return value.getClass().getSimpleName();
+            return type;
+        }
+    }
+
+    /**
+     * Proxy handler for one statement. Not thread-safe, like the statement it wraps.
+     */
+    private static class InstrumentedStatement implements InvocationHandler {
+        private final Statement target;
+        private final Connection physical;
+        private final SqlStats preparedStats;
+        private final Map<Integer, Parameter> parameters = new TreeMap<>();
+        private int batchSize;
+
+        InstrumentedStatement(Statement target, String sql, Connection physical) {
+            this.target = target;
+            this.physical = physical;
+            this.preparedStats = sql != null ? stats(sql) : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], new Parameter(method, args));
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch") && preparedStats != null) {
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return invokeTarget(method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            SqlStats stats = preparedStats;
+            if (stats == null) stats = stats(UNPREPARED);
+            int batch = batchSize;
+            if (method.getName().contains("Batch")) batchSize = 0;
+            long start = System.nanoTime();
+            try {
+                return invokeTarget(method, args);
+            } catch (SQLException e) {
+                stats.errors.increment();
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                stats.duration.record(elapsed);
+                if (elapsed >= slowQueryNanos) {
+                    boolean explain = explainSlowQueries && batch == 0 && isExplainable(stats.sql)
+                            && claimExplain(stats.sql);
+                    logSlow(stats.sql, elapsed, describeParameters(), batch, explain ? explain(stats.sql) : null);
+                }
+            }
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private String describeParameters() {
+            List<String> shapes = new ArrayList<>(parameters.size());
+            for (Parameter parameter : parameters.values()) shapes.add(parameter.shape());
+            return shapes.toString();
+        }
+
+        /**
+         * Ask H2 for the plan of this statement with the parameters it just ran with.
+         */
+        private String explain(String sql) {
+            StringBuilder plan = new StringBuilder();
+            try (PreparedStatement ps = physical.prepareStatement("EXPLAIN " + sql)) {
+                if (preparedStats != null) {
+                    for (Parameter parameter : parameters.values()) parameter.setter.invoke(ps, parameter.args);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) plan.append(rs.getString(1)).append('\n');
+                }
+            } catch (SQLException | ReflectiveOperationException e) {
+                return "EXPLAIN failed: " + e.getMessage();
+            }
+            return plan.toString().trim();
+        }
+    }
+}
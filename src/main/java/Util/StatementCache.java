@@ -0,0 +1,64 @@
+package Util;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Idle prepared statements of one physical connection, keyed by the arguments they were prepared with: the SQL plus
+ * options such as Statement.RETURN_GENERATED_KEYS. A statement is taken out while it is in use and offered back when
+ * the DAO closes it, so two open statements never share one JDBC object. Beyond maxSize, the least recently used
+ * statement is closed.
+ */
+class StatementCache {
+
+    private final LinkedHashMap<List<Object>, PreparedStatement> idle;
+
+    /**
+     * @param maxSize the most idle statements kept open for the connection.
+     */
+    StatementCache(int maxSize) {
+        idle = new LinkedHashMap<List<Object>, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, PreparedStatement> eldest) {
+                if (size() > maxSize) {
+                    close(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param key the arguments passed to Connection.prepareStatement.
+     * @return an idle statement prepared with those arguments, now owned by the caller, or null if there is none.
+     */
+    synchronized PreparedStatement take(List<Object> key) {
+        return idle.remove(key);
+    }
+
+    /**
+     * Return a statement the caller has finished with. If an identical statement is already idle, this one is closed.
+     *
+     * @param key the arguments the statement was prepared with.
+     * @param statement a statement with its parameters cleared.
+     */
+    synchronized void offer(List<Object> key, PreparedStatement statement) {
+        if (idle.containsKey(key)) {
+            close(statement);
+        } else {
+            idle.put(key, statement);
+        }
+    }
+
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
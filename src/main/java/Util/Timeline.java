@@ -0,0 +1,100 @@
+package Util;
+
+/**
+ * A bounded, newest-wins list of message IDs with their authors, kept in ascending message ID order in a ring
+ * buffer. When full, adding a message drops the oldest one, and a message older than everything held is ignored.
+ *
+ * Message IDs only grow, so nearly every add() lands at the end of the ring in O(1); backfilled older messages are
+ * shifted into place. Reading a page of the newest messages before a given ID is a binary search plus the page
+ * itself, whatever the capacity. All methods lock the instance, and each holds the lock only briefly.
+ */
+public class Timeline {
+
+    private final int[] ids;
+    private final int[] authors;
+    private int start;
+    private int size;
+
+    /**
+     * @param capacity the most messages held.
+     */
+    public Timeline(int capacity) {
+        ids = new int[Math.max(1, capacity)];
+        authors = new int[ids.length];
+    }
+
+    /**
+     * Add a message, unless it is already held or older than everything in a full timeline.
+     *
+     * @param message_id the message ID.
+     * @param author_id the account that posted it.
+     */
+    public synchronized void add(int message_id, int author_id) {
+        int position = size;
+        while (position > 0 && ids[slot(position - 1)] > message_id) position--;
+        if (position > 0 && ids[slot(position - 1)] == message_id) return;
+        if (size == ids.length) {
+            if (position == 0) return;
+            start = slot(1);
+            size--;
+            position--;
+        }
+        for (int i = size; i > position; i--) {
+            ids[slot(i)] = ids[slot(i - 1)];
+            authors[slot(i)] = authors[slot(i - 1)];
+        }
+        ids[slot(position)] = message_id;
+        authors[slot(position)] = author_id;
+        size++;
+    }
+
+    /**
+     * Drop every message by an author.
+     *
+     * @param author_id the account whose messages to drop.
+     */
+    public synchronized void removeAuthor(int author_id) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int from = slot(i);
+            if (authors[from] == author_id) continue;
+            int to = slot(kept++);
+            ids[to] = ids[from];
+            authors[to] = authors[from];
+        }
+        size = kept;
+    }
+
+    /**
+     * @param before_id only messages with a smaller ID are returned; Integer.MAX_VALUE for the newest.
+     * @param limit the most IDs to return.
+     * @return up to limit message IDs below before_id, newest first.
+     */
+    public synchronized int[] newestBefore(int before_id, int limit) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ids[slot(middle)] < before_id) low = middle + 1;
+            else high = middle;
+        }
+        int count = Math.max(0, Math.min(limit, low));
+        int[] page = new int[count];
+        for (int i = 0; i < count; i++) {
+            page[i] = ids[slot(low - 1 - i)];
+        }
+        return page;
+    }
+
+    /**
+     * @return the number of messages held.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private int slot(int index) {
+        int slot = start + index;
+        return slot >= ids.length ? slot - ids.length : slot;
+    }
+}
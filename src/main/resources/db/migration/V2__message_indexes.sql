@@ -0,0 +1,5 @@
+-- Per-account listings and pages seek on (posted_by, message_id) and come back already in message_id order. The
+-- index H2 creates for the foreign key covers posted_by alone, so it cannot serve the ORDER BY.
+create index if not exists message_posted_by_idx on message (posted_by, message_id);
+-- Time-ordered reads of the message table.
+create index if not exists message_time_posted_idx on message (time_posted_epoch);
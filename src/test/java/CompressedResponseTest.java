@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Model.MessagePage;
+import Util.ConnectionUtil;
+import Util.JsonUtil;
+import io.javalin.Javalin;
+
+public class CompressedResponseTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, create a new webClient and ObjectMapper, and
+     * post enough messages that the full listing is worth compressing.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
+
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 30; i++) {
+            if (i > 0) batch.append(',');
+            batch.append("{\"posted_by\":1, \"message_text\": \"message \\\"").append(i)
+                    .append("\\\" é\", \"time_posted_epoch\": 1669947792}");
+        }
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(batch.append("]").toString()))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<byte[]> get(String path, String acceptEncoding, String ifNoneMatch)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if (acceptEncoding != null) request.header("Accept-Encoding", acceptEncoding);
+        if (ifNoneMatch != null) request.header("If-None-Match", ifNoneMatch);
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Sending GET localhost:8080/messages and a page of it
+     *
+     * Expected Response:
+     *  Response Body: byte for byte what Jackson writes for the same messages
+     */
+    @Test
+    public void assembledJsonMatchesJackson() throws IOException, InterruptedException {
+        String list = new String(get("/messages", null, null).body(), StandardCharsets.UTF_8);
+        List<Message> messages = objectMapper.readValue(list, new TypeReference<List<Message>>() {});
+        Assert.assertEquals(31, messages.size());
+        Assert.assertEquals(JsonUtil.MESSAGE_LIST_WRITER.writeValueAsString(messages), list);
+
+        String page = new String(get("/messages?limit=5", null, null).body(), StandardCharsets.UTF_8);
+        Assert.assertEquals(JsonUtil.MESSAGE_PAGE_WRITER.writeValueAsString(
+                objectMapper.readValue(page, MessagePage.class)), page);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages with Accept-Encoding: gzip, twice, then revalidating
+     *
+     * Expected Response:
+     *  Content-Encoding: gzip, a body that decompresses to the uncompressed response, and an ETag of its own that
+     *  revalidates with 304
+     */
+    @Test
+    public void largeListingIsServedGzipped() throws IOException, InterruptedException {
+        HttpResponse<byte[]> plain = get("/messages", null, null);
+        String etag = plain.headers().firstValue("ETag").orElseThrow();
+        Assert.assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+
+        for (int i = 0; i < 2; i++) {
+            HttpResponse<byte[]> gzipped = get("/messages", "br;q=1.0, gzip;q=0.8", null);
+            Assert.assertEquals(200, gzipped.statusCode());
+            Assert.assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElseThrow());
+            Assert.assertNotEquals(etag, gzipped.headers().firstValue("ETag").orElseThrow());
+            Assert.assertTrue(gzipped.body().length < plain.body().length);
+            Assert.assertArrayEquals(plain.body(), gunzip(gzipped.body()));
+        }
+
+        String gzipETag = get("/messages", "gzip", null).headers().firstValue("ETag").orElseThrow();
+        HttpResponse<byte[]> notModified = get("/messages", "gzip", gzipETag);
+        Assert.assertEquals(304, notModified.statusCode());
+        Assert.assertEquals(gzipETag, notModified.headers().firstValue("ETag").orElseThrow());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/1 with Accept-Encoding: gzip, and the full listing with gzip refused
+     *
+     * Expected Response:
+     *  no Content-Encoding: the message is too small to be worth compressing
+     */
+    @Test
+    public void smallOrRefusedResponsesAreNotCompressed() throws IOException, InterruptedException {
+        Assert.assertTrue(get("/messages/1", "gzip", null).headers().firstValue("Content-Encoding").isEmpty());
+        Assert.assertTrue(get("/messages", "gzip;q=0", null).headers().firstValue("Content-Encoding").isEmpty());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages?stream=true with and without Accept-Encoding: gzip, then revalidating the
+     * gzip variant
+     *
+     * Expected Response:
+     *  each encoding under its own ETag, matching the buffered listing's: the plain stream uncompressed, the gzip
+     *  stream decompressing to the same bytes; the gzip ETag revalidates with 304
+     */
+    @Test
+    public void streamedListingHasOneETagPerEncoding() throws IOException, InterruptedException {
+        HttpResponse<byte[]> buffered = get("/messages", null, null);
+        HttpResponse<byte[]> plain = get("/messages?stream=true", null, null);
+        Assert.assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+        Assert.assertEquals(buffered.headers().firstValue("ETag").orElseThrow(),
+                plain.headers().firstValue("ETag").orElseThrow());
+        Assert.assertArrayEquals(buffered.body(), plain.body());
+
+        HttpResponse<byte[]> gzipped = get("/messages?stream=true", "gzip", null);
+        Assert.assertEquals(200, gzipped.statusCode());
+        Assert.assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElseThrow());
+        String gzipETag = gzipped.headers().firstValue("ETag").orElseThrow();
+        Assert.assertEquals(get("/messages", "gzip", null).headers().firstValue("ETag").orElseThrow(), gzipETag);
+        Assert.assertArrayEquals(plain.body(), gunzip(gzipped.body()));
+
+        HttpResponse<byte[]> refused = get("/messages?stream=true", "gzip;q=0", null);
+        Assert.assertTrue(refused.headers().firstValue("Content-Encoding").isEmpty());
+        Assert.assertArrayEquals(plain.body(), refused.body());
+
+        Assert.assertEquals(304, get("/messages?stream=true", "gzip", gzipETag).statusCode());
+    }
+}
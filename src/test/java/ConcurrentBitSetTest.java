@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import Util.ConcurrentBitSet;
+
+public class ConcurrentBitSetTest {
+
+    /**
+     * Values are found once added and gone once removed; values past the end of the bitmap are simply absent.
+     */
+    @Test
+    public void addContainsRemove() {
+        ConcurrentBitSet set = new ConcurrentBitSet(64);
+        set.add(3);
+        set.add(1000);
+        Assert.assertTrue(set.contains(3));
+        Assert.assertTrue(set.contains(1000));
+        Assert.assertFalse(set.contains(4));
+        Assert.assertFalse(set.contains(1_000_000));
+        Assert.assertFalse(set.contains(-1));
+        Assert.assertEquals(2, set.size());
+
+        set.remove(3);
+        set.remove(5_000_000);
+        Assert.assertFalse(set.contains(3));
+        Assert.assertEquals(1, set.size());
+    }
+
+    /**
+     * Threads adding values that share words with each other while the bitmap grows under them lose none of them.
+     */
+    @Test
+    public void concurrentAddsSurviveGrowth() throws InterruptedException {
+        int threads = 8;
+        int perThread = 20_000;
+        for (int round = 0; round < 20; round++) {
+            ConcurrentBitSet set = new ConcurrentBitSet(1);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    // Interleaved values, so every word is written by every thread.
+                    for (int i = 0; i < perThread; i++) set.add(i * threads + offset);
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            start.countDown();
+            for (Thread worker : workers) worker.join();
+
+            Assert.assertEquals(threads * perThread, set.size());
+            for (int value = 0; value < threads * perThread; value++) {
+                if (!set.contains(value)) Assert.fail("lost " + value + " in round " + round);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class ConditionalGetTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if (ifNoneMatch != null) request.header("If-None-Match", ifNoneMatch);
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void patchMessage(int message_id, String text) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + message_id))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"" + text + "\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/1 again with the ETag of the first response in If-None-Match
+     *
+     * Expected Response:
+     *  Status Code: 304
+     *  Response Body: empty, with the same ETag
+     */
+    @Test
+    public void unchangedMessageIsNotModified() throws IOException, InterruptedException {
+        for (String path : new String[] {"/messages/1", "/messages", "/accounts/1/messages"}) {
+            HttpResponse<String> first = get(path, null);
+            Assert.assertEquals(200, first.statusCode());
+            String etag = first.headers().firstValue("ETag").orElseThrow();
+
+            HttpResponse<String> second = get(path, etag);
+            Assert.assertEquals(path, 304, second.statusCode());
+            Assert.assertEquals("", second.body());
+            Assert.assertEquals(etag, second.headers().firstValue("ETag").orElseThrow());
+        }
+    }
+
+    /**
+     * Update message 1, then revalidate each listing with the ETag from before the update
+     *
+     * Expected Response:
+     *  Status Code: 200 with a new ETag and the updated text
+     */
+    @Test
+    public void updatedMessageChangesETags() throws IOException, InterruptedException {
+        String[] paths = {"/messages/1", "/messages", "/accounts/1/messages"};
+        String[] etags = new String[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            etags[i] = get(paths[i], null).headers().firstValue("ETag").orElseThrow();
+        }
+
+        patchMessage(1, "updated text");
+
+        for (int i = 0; i < paths.length; i++) {
+            HttpResponse<String> response = get(paths[i], etags[i]);
+            Assert.assertEquals(paths[i], 200, response.statusCode());
+            Assert.assertNotEquals(etags[i], response.headers().firstValue("ETag").orElseThrow());
+            Assert.assertTrue(response.body().contains("updated text"));
+        }
+    }
+
+    /**
+     * Revalidate another account's messages after message 1 changes
+     *
+     * Expected Response:
+     *  Status Code: 304, since that account's messages did not change
+     */
+    @Test
+    public void otherAccountsStayNotModified() throws IOException, InterruptedException {
+        String etag = get("/accounts/2/messages", null).headers().firstValue("ETag").orElseThrow();
+        patchMessage(1, "updated text");
+        Assert.assertEquals(304, get("/accounts/2/messages", etag).statusCode());
+        Assert.assertEquals(304, get("/accounts/2/messages", "W/" + etag).statusCode());
+    }
+}
@@ -0,0 +1,93 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Util.ConnectionPool;
+
+public class ConnectionPoolTest {
+    ConnectionPool pool;
+
+    /**
+     * Before every test, create a pool of at most two connections to a private in-memory database, with a short
+     * acquisition timeout and no connections kept warm.
+     */
+    @Before
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+        pool = new ConnectionPool(dataSource, 0, 2, 200, 60000, 1, 4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * With every connection borrowed, getConnection() gives up after the acquisition timeout and counts it.
+     */
+    @Test
+    public void acquireTimesOutWhenExhausted() throws SQLException {
+        try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+            long start = System.nanoTime();
+            try {
+                pool.getConnection().close();
+                Assert.fail("expected a timeout");
+            } catch (SQLException e) {
+                Assert.assertTrue(System.nanoTime() - start >= 150_000_000L);
+            }
+            Assert.assertEquals(1, pool.getTimeoutCount());
+            Assert.assertEquals(2, pool.getActiveCount());
+        }
+        pool.getConnection().close();
+    }
+
+    /**
+     * Closing a borrowed connection returns it to the pool rather than closing it, and the next borrow reuses it.
+     */
+    @Test
+    public void closeReturnsConnectionForReuse() throws SQLException {
+        Connection borrowed = pool.getConnection();
+        Assert.assertEquals(1, pool.getActiveCount());
+        borrowed.close();
+        Assert.assertEquals(0, pool.getActiveCount());
+        Assert.assertEquals(1, pool.getIdleCount());
+        Assert.assertThrows(SQLException.class, borrowed::createStatement);
+
+        try (Connection again = pool.getConnection()) {
+            Assert.assertFalse(again.isClosed());
+            Assert.assertEquals(0, pool.getIdleCount());
+        }
+        Assert.assertEquals(1, pool.getCreatedCount());
+        Assert.assertEquals(1, pool.getTotalCount());
+    }
+
+    /**
+     * Preparing the same SQL again on the same physical connection is served from its statement cache, even across
+     * borrows.
+     */
+    @Test
+    public void preparedStatementsAreCachedAcrossBorrows() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = pool.getConnection();
+                 PreparedStatement ps = connection.prepareStatement("SELECT ?")) {
+                ps.setInt(1, i);
+                try (ResultSet rs = ps.executeQuery()) {
+                    Assert.assertTrue(rs.next());
+                    Assert.assertEquals(i, rs.getInt(1));
+                }
+            }
+        }
+        Assert.assertEquals(1, pool.getStatementCacheMissCount());
+        Assert.assertEquals(2, pool.getStatementCacheHitCount());
+    }
+}
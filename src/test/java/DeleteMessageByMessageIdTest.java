@@ -36,7 +36,7 @@ public class DeleteMessageByMessageIdTest {
         webClient = HttpClient.newHttpClient();
         objectMapper = new ObjectMapper();
         app.start(8080);
-        Thread.sleep(1000);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
     }
 
     @After
@@ -87,5 +87,26 @@ public class DeleteMessageByMessageIdTest {
         Assert.assertEquals(200, status);
         Assert.assertTrue(response.body().toString().isEmpty());
     }
-    
+
+    /**
+     * Sending an http request to DELETE localhost:8080/messages/1 twice
+     * 
+     * Expected Response:
+     *  Status Code: 200 both times
+     *  Response Body: the deleted message the first time, empty the second time
+     */
+    @Test
+    public void deleteMessageTwiceOnlyReturnsItOnce() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE()
+                .build();
+        HttpResponse first = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse second = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(200, first.statusCode());
+        Assert.assertFalse(first.body().toString().isEmpty());
+        Assert.assertEquals(200, second.statusCode());
+        Assert.assertTrue(second.body().toString().isEmpty());
+    }
 }
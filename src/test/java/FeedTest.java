@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Model.MessagePage;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class FeedTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, create a new webClient and ObjectMapper, and
+     * register a second account (account_id 2) to follow testuser1.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
+
+        HttpRequest register = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"reader\", " +
+                        "\"password\": \"password\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(register, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private int send(String method, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+
+    private void postMessage(String text) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"" + text + "\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private MessagePage feed(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/2/feed" + query))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), MessagePage.class);
+    }
+
+    private static List<Integer> ids(MessagePage page) {
+        List<Integer> ids = new ArrayList<>();
+        for (Message message : page.getItems()) ids.add(message.getMessage_id());
+        return ids;
+    }
+
+    /**
+     * Follow testuser1, read the feed, post as testuser1, read the feed again, then unfollow
+     *
+     * Expected Response:
+     *  Status Code: 200 throughout
+     *  Response Body: the existing message, then both messages newest first, then nothing
+     */
+    @Test
+    public void feedFollowsPostsAndUnfollows() throws IOException, InterruptedException {
+        Assert.assertEquals(200, send("POST", "/accounts/2/following/1"));
+        Assert.assertEquals(List.of(1), ids(feed("")));
+
+        postMessage("second message");
+        Assert.assertEquals(List.of(2, 1), ids(feed("")));
+
+        Assert.assertEquals(200, send("DELETE", "/accounts/2/following/1"));
+        Assert.assertTrue(feed("").getItems().isEmpty());
+    }
+
+    /**
+     * Read the feed one message per page
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the newest message and a cursor, then the older message
+     */
+    @Test
+    public void feedPagesNewestFirst() throws IOException, InterruptedException {
+        Assert.assertEquals(200, send("POST", "/accounts/2/following/1"));
+        postMessage("second message");
+
+        MessagePage first = feed("?limit=1");
+        Assert.assertEquals(List.of(2), ids(first));
+        Assert.assertNotNull(first.getNext());
+        MessagePage second = feed("?limit=1&cursor=" + first.getNext());
+        Assert.assertEquals(List.of(1), ids(second));
+    }
+
+    /**
+     * Follow oneself, and an account that does not exist
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void invalidFollowsAreRejected() throws IOException, InterruptedException {
+        Assert.assertEquals(400, send("POST", "/accounts/2/following/2"));
+        Assert.assertEquals(400, send("POST", "/accounts/2/following/100"));
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import DAO.GroupCommitMessageWriter;
+import DAO.MessageDAO;
+import Model.Message;
+import Service.MessageService;
+import Util.ConnectionUtil;
+import Util.DatabaseUnavailableException;
+
+public class GroupCommitMessageWriterTest {
+    GroupCommitMessageWriter writer;
+
+    /**
+     * Before every test, reset the database.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        if (writer != null) writer.shutdown();
+    }
+
+    /**
+     * A MessageDAO that counts batch writes and can be told to fail them.
+     */
+    static class TestDAO extends MessageDAO {
+        final AtomicInteger batches = new AtomicInteger();
+        volatile boolean batchFails;
+        volatile RuntimeException failure;
+
+        @Override
+        public List<Message> insertMessages(List<Message> messages) {
+            batches.incrementAndGet();
+            if (failure != null) throw failure;
+            return batchFails ? null : super.insertMessages(messages);
+        }
+
+        @Override
+        public Message insertMessage(Message message) {
+            if (failure != null) throw failure;
+            return super.insertMessage(message);
+        }
+    }
+
+    private static Message message(int i) {
+        return new Message(1, "group commit " + i, 1669947792L);
+    }
+
+    private static Set<Integer> awaitIds(List<CompletableFuture<Message>> futures)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        Set<Integer> ids = new HashSet<>();
+        for (CompletableFuture<Message> future : futures) {
+            Message inserted = future.get(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(inserted);
+            ids.add(inserted.getMessage_id());
+        }
+        return ids;
+    }
+
+    /**
+     * Messages submitted within one linger period are written together, and each caller gets its own message_id.
+     */
+    @Test
+    public void concurrentSubmitsShareABatch() throws Exception {
+        TestDAO dao = new TestDAO();
+        writer = new GroupCommitMessageWriter(dao, 64, 200_000, 100);
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) futures.add(writer.submit(message(i)));
+
+        Assert.assertEquals(20, awaitIds(futures).size());
+        Assert.assertTrue("batches: " + dao.batches.get(), dao.batches.get() < 20);
+    }
+
+    /**
+     * When a batch fails as a whole, each of its messages is retried on its own.
+     */
+    @Test
+    public void failedBatchFallsBackToSingleInserts() throws Exception {
+        TestDAO dao = new TestDAO();
+        dao.batchFails = true;
+        writer = new GroupCommitMessageWriter(dao, 64, 50_000, 100);
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) futures.add(writer.submit(message(i)));
+
+        Assert.assertEquals(5, awaitIds(futures).size());
+    }
+
+    /**
+     * A runtime exception fails that batch's futures, and the writer goes on to write later batches.
+     */
+    @Test
+    public void runtimeFailureCompletesFuturesAndWriterSurvives() throws Exception {
+        TestDAO dao = new TestDAO();
+        dao.failure = new IllegalStateException("database gone");
+        writer = new GroupCommitMessageWriter(dao, 64, 1_000, 100);
+
+        CompletableFuture<Message> failed = writer.submit(message(0));
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            Assert.fail("expected the insert to fail");
+        } catch (ExecutionException e) {
+            Assert.assertSame(dao.failure, e.getCause());
+        }
+
+        dao.failure = null;
+        Assert.assertEquals(1, awaitIds(List.of(writer.submit(message(1)))).size());
+    }
+
+    /**
+     * A post whose caller stops waiting before the group commit lands still gets its side effects once the commit
+     * does: it is indexed for search and bumps the message version behind the ETags.
+     */
+    @Test
+    public void postCommittedAfterTimeoutIsStillIndexed() throws InterruptedException {
+        System.setProperty("groupCommit.enabled", "true");
+        System.setProperty("groupCommit.awaitMillis", "0");
+        System.setProperty("groupCommit.maxLingerMicros", "200000");
+        MessageService messageService;
+        try {
+            messageService = new MessageService();
+        } finally {
+            System.clearProperty("groupCommit.enabled");
+            System.clearProperty("groupCommit.awaitMillis");
+            System.clearProperty("groupCommit.maxLingerMicros");
+        }
+        try {
+            long version = messageService.getChangeTracker().getVersion();
+            try {
+                messageService.addMessage(new Message(1, "belated zebra", 1669947792L));
+                Assert.fail("expected the wait to time out");
+            } catch (DatabaseUnavailableException e) {
+                // The caller saw a 503; the message is still queued.
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (messageService.searchMessages("zebra", 10).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            List<Message> found = messageService.searchMessages("zebra", 10);
+            Assert.assertEquals(1, found.size());
+            Assert.assertEquals("belated zebra", found.get(0).getMessage_text());
+            Assert.assertTrue(messageService.getChangeTracker().getVersion() > version);
+        } finally {
+            messageService.close();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class LiveMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Collects the text frames a socket receives.
+     */
+    static class Frames implements WebSocket.Listener {
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                received.add(partial.toString());
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+    }
+
+    private JsonNode nextEvent(Frames frames) throws IOException, InterruptedException {
+        String text = frames.received.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("no event received", text);
+        return objectMapper.readTree(text);
+    }
+
+    /**
+     * Subscribe to testuser1's messages over ws://localhost:8080/messages/live?posted_by=1, then post and update a
+     * message
+     *
+     * Expected Response:
+     *  a subscribed event, then a created event and an updated event carrying the message
+     */
+    @Test
+    public void liveSubscriberReceivesCreatedAndUpdatedMessages() throws IOException, InterruptedException {
+        Frames frames = new Frames();
+        WebSocket socket = webClient.newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:8080/messages/live?posted_by=1"), frames)
+                .join();
+        Assert.assertEquals("subscribed", nextEvent(frames).get("type").asText());
+
+        HttpRequest post = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"live message\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(post, HttpResponse.BodyHandlers.ofString()).statusCode());
+        JsonNode created = nextEvent(frames);
+        Assert.assertEquals("created", created.get("type").asText());
+        Assert.assertEquals("live message", created.get("message").get("message_text").asText());
+
+        HttpRequest patch = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/2"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"edited live\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(patch, HttpResponse.BodyHandlers.ofString()).statusCode());
+        JsonNode updated = nextEvent(frames);
+        Assert.assertEquals("updated", updated.get("type").asText());
+        Assert.assertEquals(2, updated.get("message").get("message_id").asInt());
+
+        socket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+    }
+
+    /**
+     * Subscribe two sockets to ws://localhost:8080/messages/live, drop the first one's connection without a close
+     * handshake, then post a message
+     *
+     * Expected Response:
+     *  the remaining socket still receives the created event
+     */
+    @Test
+    public void abortedSubscriberDoesNotStopDelivery() throws IOException, InterruptedException {
+        Frames abortedFrames = new Frames();
+        WebSocket aborted = webClient.newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:8080/messages/live"), abortedFrames)
+                .join();
+        Assert.assertEquals("subscribed", nextEvent(abortedFrames).get("type").asText());
+        Frames frames = new Frames();
+        WebSocket socket = webClient.newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:8080/messages/live"), frames)
+                .join();
+        Assert.assertEquals("subscribed", nextEvent(frames).get("type").asText());
+        aborted.abort();
+
+        HttpRequest post = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"after abort\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(post, HttpResponse.BodyHandlers.ofString()).statusCode());
+        JsonNode created = nextEvent(frames);
+        Assert.assertEquals("created", created.get("type").asText());
+        Assert.assertEquals("after abort", created.get("message").get("message_text").asText());
+
+        socket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+    }
+
+    /**
+     * Subscribe with a posted_by that is not a number
+     *
+     * Expected Response:
+     *  the socket is closed with status 1008 (policy violation)
+     */
+    @Test
+    public void liveSubscriberWithInvalidFilterIsClosed() throws InterruptedException {
+        BlockingQueue<Integer> closed = new LinkedBlockingQueue<>();
+        webClient.newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:8080/messages/live?posted_by=abc"), new WebSocket.Listener() {
+                    @Override
+                    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+                        closed.add(statusCode);
+                        return null;
+                    }
+                })
+                .join();
+        Assert.assertEquals(Integer.valueOf(1008), closed.poll(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import Util.LruCache;
+
+public class LruCacheTest {
+
+    /**
+     * With room for 32 entries the cache has 16 segments of two, and small Integer keys 16 apart share a segment. A
+     * full segment evicts its least recently used entry, where a read counts as a use.
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        LruCache<Integer, String> cache = new LruCache<>(32);
+        cache.put(0, "zero");
+        cache.put(16, "sixteen");
+        Assert.assertEquals("zero", cache.get(0));
+
+        cache.put(32, "thirty-two");
+        Assert.assertNull(cache.get(16));
+        Assert.assertEquals("zero", cache.get(0));
+        Assert.assertEquals("thirty-two", cache.get(32));
+        Assert.assertEquals(1, cache.getEvictionCount());
+
+        cache.put(48, "forty-eight");
+        Assert.assertNull(cache.get(0));
+        Assert.assertEquals(2, cache.getEvictionCount());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    /**
+     * A read-through load is cached, and the loader is not called again while the entry stays.
+     */
+    @Test
+    public void readThroughCachesLoadedValue() {
+        LruCache<Integer, String> cache = new LruCache<>(32);
+        Assert.assertEquals("loaded", cache.get(1, key -> "loaded"));
+        Assert.assertEquals("loaded", cache.get(1, key -> {
+            throw new AssertionError("loader called on a hit");
+        }));
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    /**
+     * A key invalidated while its load is in flight gets the loaded value back, but the value, which may predate the
+     * write that invalidated it, is not cached.
+     */
+    @Test
+    public void invalidationDuringLoadIsNotRepopulated() {
+        LruCache<Integer, String> cache = new LruCache<>(32);
+        String loaded = cache.get(1, key -> {
+            cache.invalidate(key);
+            return "stale";
+        });
+        Assert.assertEquals("stale", loaded);
+        Assert.assertNull(cache.get(1));
+        Assert.assertEquals("fresh", cache.get(1, key -> "fresh"));
+        Assert.assertEquals("fresh", cache.get(1));
+    }
+
+    /**
+     * Clearing the cache also stops a load in flight from repopulating it.
+     */
+    @Test
+    public void clearDuringLoadIsNotRepopulated() {
+        LruCache<Integer, String> cache = new LruCache<>(32);
+        cache.get(1, key -> {
+            cache.clear();
+            return "stale";
+        });
+        Assert.assertEquals(0, cache.size());
+    }
+}
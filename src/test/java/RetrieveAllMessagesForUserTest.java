@@ -38,7 +38,7 @@ public class RetrieveAllMessagesForUserTest {
         webClient = HttpClient.newHttpClient();
         objectMapper = new ObjectMapper();
         app.start(8080);
-        Thread.sleep(1000);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
     }
 
     @After
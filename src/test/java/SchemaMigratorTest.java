@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Util.ConnectionUtil;
+import Util.DatabaseSnapshot;
+import Util.SchemaMigrator;
+
+public class SchemaMigratorTest {
+
+    /**
+     * Before every test, reset the database, which rebuilds the schema through SchemaMigrator.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+    }
+
+    /**
+     * Running the migrations against an up-to-date database applies nothing and keeps existing rows.
+     */
+    @Test
+    public void migrateIsIdempotentAndKeepsData() throws SQLException {
+        Assert.assertEquals(0, SchemaMigrator.migrate());
+
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM message");
+             ResultSet rs = ps.executeQuery()) {
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(1, rs.getInt(1));
+        }
+    }
+
+    /**
+     * A migration whose DDL was committed but whose schema_version row was not, as after a failure partway through,
+     * runs again cleanly on the next boot.
+     */
+    @Test
+    public void partlyAppliedMigrationRunsAgain() throws SQLException {
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement("DELETE FROM schema_version WHERE version = 3")) {
+            Assert.assertEquals(1, ps.executeUpdate());
+        }
+        Assert.assertEquals(1, SchemaMigrator.migrate());
+        Assert.assertEquals(0, SchemaMigrator.migrate());
+    }
+
+    /**
+     * Every migration is recorded in schema_version, and per-account message pages seek on the
+     * (posted_by, message_id) index.
+     */
+    @Test
+    public void migrationsAreRecordedAndIndexesUsed() throws SQLException {
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT version FROM schema_version ORDER BY version");
+                 ResultSet rs = ps.executeQuery()) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(1, rs.getInt(1));
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(2, rs.getInt(1));
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(3, rs.getInt(1));
+            }
+            try (PreparedStatement ps = connection.prepareStatement("EXPLAIN SELECT * FROM message "
+                    + "WHERE posted_by = 1 AND message_id > 0 ORDER BY message_id LIMIT 10");
+                 ResultSet rs = ps.executeQuery()) {
+                Assert.assertTrue(rs.next());
+                Assert.assertTrue(rs.getString(1).toUpperCase().contains("MESSAGE_POSTED_BY_IDX"));
+            }
+        }
+    }
+
+    /**
+     * The prebuilt snapshot boots as an in-memory database that already has every migration applied.
+     */
+    @Test
+    public void snapshotIsFullyMigrated() throws IOException, SQLException {
+        String url = DatabaseSnapshot.install("snapshot-test");
+        try (Connection connection = DriverManager.getConnection(url, "sa", "sa")) {
+            Assert.assertEquals(0, SchemaMigrator.migrate(connection));
+            try (PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM message");
+                 ResultSet rs = ps.executeQuery()) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+}
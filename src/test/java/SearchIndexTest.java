@@ -0,0 +1,119 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntConsumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import Model.Message;
+import Service.MessageService;
+import Util.ConnectionUtil;
+import Util.SearchIndex;
+
+public class SearchIndexTest {
+
+    /**
+     * Tokens are lower-cased the same way whatever the default locale. Under Turkish rules "I" would lower-case to a
+     * dotless i and "TITLE" would never match "title".
+     */
+    @Test
+    public void tokenizeIgnoresDefaultLocale() {
+        Locale original = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            Assert.assertEquals(Arrays.asList("title", "in", "caps"), SearchIndex.tokenize("TITLE IN CAPS"));
+
+            SearchIndex index = new SearchIndex();
+            index.add(1, "TITLE");
+            Assert.assertEquals(Arrays.asList(1), index.search("title", 10));
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    /**
+     * Updating and removing documents keeps posting lists consistent, including after the last entry is moved into a
+     * removed one's slot.
+     */
+    @Test
+    public void updateAndRemoveKeepPostingsConsistent() {
+        SearchIndex index = new SearchIndex();
+        index.add(1, "common alpha");
+        index.add(2, "common beta");
+        index.add(3, "common gamma");
+        index.remove(1);
+        index.update(2, "delta");
+        Assert.assertEquals(Arrays.asList(3), index.search("common", 10));
+        Assert.assertEquals(Arrays.asList(2), index.search("delta", 10));
+        Assert.assertTrue(index.search("alpha beta", 10).isEmpty());
+        Assert.assertEquals(2, index.getDocumentCount());
+    }
+
+    /**
+     * A removal that overtakes an add or update of the same ID on its way in is not undone by it.
+     */
+    @Test
+    public void removedIdIsNotIndexedAgain() {
+        SearchIndex index = new SearchIndex();
+        index.add(7, "ghost story");
+        index.remove(7);
+        index.update(7, "ghost story edited");
+        index.remove(8);
+        index.add(8, "ghost town");
+        Assert.assertTrue(index.search("ghost", 10).isEmpty());
+        Assert.assertEquals(0, index.getDocumentCount());
+    }
+
+    /**
+     * Concurrent updates of one message, then a delete racing more updates, leave the index agreeing with the
+     * database: the last committed text is the one indexed, and a deleted message is not indexed at all.
+     */
+    @Test
+    public void concurrentUpdatesAndDeleteLeaveIndexConsistent() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        MessageService messageService = new MessageService();
+        try {
+            int writers = 8;
+            runConcurrently(writers, i -> messageService.updateMessage(1, new Message(0, "word" + i, 0)));
+            String text = messageService.getMessageById(1).getMessage_text();
+            Assert.assertEquals(1, messageService.searchMessages(text, 10).size());
+            for (int i = 0; i < writers; i++) {
+                if (text.equals("word" + i)) continue;
+                Assert.assertTrue(messageService.searchMessages("word" + i, 10).isEmpty());
+            }
+
+            runConcurrently(writers, i -> {
+                if (i == 0) messageService.deleteMessage(1);
+                else messageService.updateMessage(1, new Message(0, "late" + i, 0));
+            });
+            for (int i = 1; i < writers; i++) {
+                Assert.assertTrue(messageService.searchMessages("late" + i, 10).isEmpty());
+            }
+        } finally {
+            messageService.close();
+        }
+    }
+
+    private static void runConcurrently(int threads, IntConsumer task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> running = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                task.accept(index);
+            });
+            thread.start();
+            running.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : running) thread.join();
+    }
+}
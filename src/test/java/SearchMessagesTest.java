@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SearchMessagesTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private void postMessage(String text) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"" + text + "\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private HttpResponse<String> search(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/search?q=" + query))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Message> searchMessages(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = search(query);
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search?q=Test for the message present at startup
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the matching message, found regardless of case
+     */
+    @Test
+    public void searchFindsMessagesIndexedAtStartup() throws IOException, InterruptedException {
+        List<Message> results = searchMessages("Test");
+
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(new Message(1, 1, "test message 1", 1669947792), results.get(0));
+    }
+
+    /**
+     * Post messages, then search for a word they share
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message using the word most, relative to its length, ranked first
+     */
+    @Test
+    public void searchRanksByRelevance() throws IOException, InterruptedException {
+        postMessage("coffee then a long walk around the park and back home again");
+        postMessage("coffee coffee");
+
+        List<Message> results = searchMessages("coffee");
+
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals("coffee coffee", results.get(0).getMessage_text());
+    }
+
+    /**
+     * Update one message and delete another, then search
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: results reflect the new text, and the deleted message is gone
+     */
+    @Test
+    public void searchFollowsUpdatesAndDeletes() throws IOException, InterruptedException {
+        postMessage("hello world");
+
+        HttpRequest patch = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"hello again\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(patch, HttpResponse.BodyHandlers.ofString()).statusCode());
+        HttpRequest delete = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/2"))
+                .DELETE()
+                .build();
+        Assert.assertEquals(200, webClient.send(delete, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        Assert.assertTrue(searchMessages("test").isEmpty());
+        Assert.assertTrue(searchMessages("world").isEmpty());
+        List<Message> results = searchMessages("hello");
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals("hello again", results.get(0).getMessage_text());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search without q
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void searchWithoutQueryIsRejected() throws IOException, InterruptedException {
+        Assert.assertEquals(400, search("").statusCode());
+    }
+}
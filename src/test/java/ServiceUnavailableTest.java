@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionPool;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class ServiceUnavailableTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient for interacting
+     * locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending GET localhost:8080/messages while every pooled connection is borrowed
+     *
+     * Expected Response:
+     *  Status Code: 503, with Retry-After, once the pool's acquisition timeout passes
+     */
+    @Test
+    public void exhaustedPoolAnswers503() throws IOException, InterruptedException, SQLException {
+        ConnectionPool pool = ConnectionUtil.getPool();
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < pool.getMaxSize(); i++) held.add(pool.getConnection());
+            HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/messages")).build();
+            HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+            Assert.assertEquals(503, response.statusCode());
+            Assert.assertTrue(response.headers().firstValue("Retry-After").isPresent());
+        } finally {
+            for (Connection connection : held) connection.close();
+        }
+    }
+
+    /**
+     * Sending three POST localhost:8080/login at once to an app with one password-hashing thread and room for one
+     * more login in its queue, while every pooled connection is borrowed so the worker stays busy
+     *
+     * Expected Response:
+     *  The third login is answered first, at once, with Status Code 503 and Retry-After; the other two wait on the
+     *  pool
+     */
+    @Test
+    public void fullExecutorQueueAnswers503() throws Exception {
+        app.stop();
+        System.setProperty("password.hashThreads", "1");
+        System.setProperty("password.hashQueueCapacity", "1");
+        try {
+            socialMediaController = new SocialMediaController();
+            app = socialMediaController.startAPI();
+        } finally {
+            System.clearProperty("password.hashThreads");
+            System.clearProperty("password.hashQueueCapacity");
+        }
+        app.start(8080);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
+
+        ConnectionPool pool = ConnectionUtil.getPool();
+        List<Connection> held = new ArrayList<>();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < pool.getMaxSize(); i++) held.add(pool.getConnection());
+            for (int i = 0; i < 3; i++) {
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/login"))
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"username\":\"testuser1\",\"password\":\"password\"}"))
+                        .header("Content-Type", "application/json")
+                        .build();
+                responses.add(webClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            @SuppressWarnings("unchecked")
+            HttpResponse<String> first = (HttpResponse<String>) CompletableFuture
+                    .anyOf(responses.toArray(new CompletableFuture<?>[0]))
+                    .get(3, TimeUnit.SECONDS);
+            Assert.assertEquals(503, first.statusCode());
+            Assert.assertTrue(first.headers().firstValue("Retry-After").isPresent());
+        } finally {
+            for (Connection connection : held) connection.close();
+            for (CompletableFuture<HttpResponse<String>> response : responses) response.join();
+        }
+    }
+
+    /**
+     * Sending three DELETE localhost:8080/messages/{message_id} at once to an async-mode app with one DbExecutor
+     * thread and room for one more request in its queue, while every pooled connection is borrowed so the worker
+     * stays busy
+     *
+     * Expected Response:
+     *  The third delete is answered first, at once, with Status Code 503 and Retry-After; the other two wait on the
+     *  pool
+     */
+    @Test
+    public void fullDbExecutorQueueAnswers503() throws Exception {
+        app.stop();
+        System.setProperty("db.executor.threads", "1");
+        System.setProperty("db.executor.queueCapacity", "1");
+        try {
+            socialMediaController = new SocialMediaController(true);
+            app = socialMediaController.startAPI();
+        } finally {
+            System.clearProperty("db.executor.threads");
+            System.clearProperty("db.executor.queueCapacity");
+        }
+        app.start(8080);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
+
+        ConnectionPool pool = ConnectionUtil.getPool();
+        List<Connection> held = new ArrayList<>();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < pool.getMaxSize(); i++) held.add(pool.getConnection());
+            for (int i = 0; i < 3; i++) {
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/messages/" + (100 + i)))
+                        .DELETE()
+                        .build();
+                responses.add(webClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            @SuppressWarnings("unchecked")
+            HttpResponse<String> first = (HttpResponse<String>) CompletableFuture
+                    .anyOf(responses.toArray(new CompletableFuture<?>[0]))
+                    .get(3, TimeUnit.SECONDS);
+            Assert.assertEquals(503, first.statusCode());
+            Assert.assertTrue(first.headers().firstValue("Retry-After").isPresent());
+            Assert.assertEquals(1, socialMediaController.getDbExecutor().getRejectedCount());
+        } finally {
+            for (Connection connection : held) connection.close();
+            for (CompletableFuture<HttpResponse<String>> response : responses) response.join();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SessionTokenTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Assert.assertTrue(socialMediaController.awaitReady(5000));
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private String login() throws IOException, InterruptedException {
+        HttpRequest loginRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"username\": \"testuser1\", " +
+                        "\"password\": \"password\" }"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(loginRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return response.headers().firstValue("X-Session-Token").orElse(null);
+    }
+
+    /**
+     * Log in, then send an http request to POST localhost:8080/messages with the session token and no posted_by
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message, posted by the session's account
+     */
+    @Test
+    public void postMessageWithSessionToken() throws IOException, InterruptedException {
+        String token = login();
+        Assert.assertNotNull(token);
+
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"message_text\": \"hello session\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+
+        Assert.assertEquals(200, response.statusCode());
+        Message expectedResult = new Message(2, 1, "hello session", 1669947792);
+        Message actualResult = objectMapper.readValue(response.body().toString(), Message.class);
+        Assert.assertEquals(expectedResult, actualResult);
+    }
+
+    /**
+     * Send http requests to POST localhost:8080/messages with an unknown token, and with a valid token but a
+     * posted_by naming another account
+     *
+     * Expected Response:
+     *  Status Code: 401, then 403
+     */
+    @Test
+    public void rejectInvalidOrMismatchedSession() throws IOException, InterruptedException {
+        String token = login();
+        String body = "{" +
+                "\"posted_by\": 2, " +
+                "\"message_text\": \"hello session\", " +
+                "\"time_posted_epoch\": 1669947792}";
+
+        HttpRequest badToken = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Authorization", "Bearer not-a-token")
+                .build();
+        Assert.assertEquals(401, webClient.send(badToken, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest otherPoster = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Authorization", "Bearer " + token)
+                .build();
+        Assert.assertEquals(403, webClient.send(otherPoster, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    /**
+     * Log in with the account seeded with a plaintext password
+     *
+     * Expected Result:
+     *  The stored password has been replaced by a salted hash
+     */
+    @Test
+    public void loginUpgradesPlaintextPassword() throws IOException, InterruptedException, SQLException {
+        login();
+
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT password FROM account WHERE username = 'testuser1'");
+             ResultSet rs = ps.executeQuery()) {
+            Assert.assertTrue(rs.next());
+            Assert.assertTrue(rs.getString(1).startsWith("pbkdf2$"));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Util.ConnectionUtil;
+import Util.Metrics;
+import Util.SqlInstrumentation;
+
+public class SqlInstrumentationTest {
+    PrintStream originalErr;
+    ByteArrayOutputStream capturedErr;
+
+    /**
+     * Before every test, reset the database, log every statement as slow and capture the sql.slow log, which
+     * slf4j-simple writes to System.err.
+     */
+    @Before
+    public void setUp() {
+        ConnectionUtil.resetTestDatabase();
+        SqlInstrumentation.setSlowQueryMillis(0);
+        originalErr = System.err;
+        capturedErr = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(capturedErr, true, StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        System.setErr(originalErr);
+        SqlInstrumentation.setSlowQueryMillis(Long.getLong("db.slowQueryMillis", 100));
+        SqlInstrumentation.setSlowQueryExplain(Boolean.getBoolean("db.slowQueryExplain"));
+    }
+
+    /**
+     * A slow prepared statement is logged with its SQL and the shape of its parameters, never their values.
+     */
+    @Test
+    public void slowQueryLogsParameterShapesNotValues() throws SQLException {
+        String sql = "SELECT account_id FROM account WHERE username = ? AND account_id > ?";
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, "hunter2-secret");
+            statement.setInt(2, 424242);
+            try (ResultSet rs = statement.executeQuery()) {
+                Assert.assertFalse(rs.next());
+            }
+        }
+        String log = capturedErr.toString(StandardCharsets.UTF_8);
+
+        Assert.assertTrue(log, log.contains("sql.slow"));
+        Assert.assertTrue(log, log.contains(sql + " params=[String(14), Int]"));
+        Assert.assertFalse(log, log.contains("hunter2-secret"));
+        Assert.assertFalse(log, log.contains("424242"));
+    }
+
+    /**
+     * With db.slowQueryExplain on, the slow-query entry carries H2's plan for the statement, still without the
+     * parameter values.
+     */
+    @Test
+    public void slowQueryExplainLogsPlan() throws SQLException {
+        SqlInstrumentation.setSlowQueryExplain(true);
+        String sql = "SELECT message_id FROM message WHERE posted_by = ? AND message_text <> ?";
+        try (Connection connection = ConnectionUtil.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, 1);
+            statement.setString(2, "explained-secret");
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    rs.getInt(1);
+                }
+            }
+        }
+        String log = capturedErr.toString(StandardCharsets.UTF_8);
+
+        Assert.assertTrue(log, log.contains(sql + " params=[Int, String(16)]"));
+        Assert.assertTrue(log, log.contains("FROM \"PUBLIC\".\"MESSAGE\""));
+        Assert.assertFalse(log, log.contains("explained-secret"));
+    }
+
+    /**
+     * Plain Statements carry their values inline, so they share one metrics label and are slow-logged under it.
+     */
+    @Test
+    public void plainStatementsShareOneLabel() throws SQLException {
+        try (Connection connection = ConnectionUtil.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT account_id FROM account WHERE username = 'inline-secret'").close();
+        }
+        String log = capturedErr.toString(StandardCharsets.UTF_8);
+        String metrics = Metrics.scrape();
+
+        Assert.assertTrue(metrics.contains("db_statement_duration_seconds_count{sql=\"<unprepared>\"}"));
+        Assert.assertFalse(metrics.contains("inline-secret"));
+        Assert.assertTrue(log, log.contains("ms: <unprepared> params=[]"));
+        Assert.assertFalse(log, log.contains("inline-secret"));
+    }
+}